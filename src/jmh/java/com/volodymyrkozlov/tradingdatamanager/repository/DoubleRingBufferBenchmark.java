@@ -0,0 +1,61 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures single point access of a full ring buffer of every storage type and price encoding.
+ * Every iteration fills a buffer of a new storage, its temporary directory is deleted once the iteration ends.
+ * Added prices are kept small, so they fit scaled ints.
+ */
+@State(Scope.Benchmark)
+public class DoubleRingBufferBenchmark {
+    private static final int CAPACITY = 1_000_000;
+
+    @Param({"HEAP", "OFF_HEAP", "MAPPED"})
+    private StorageType storageType;
+
+    @Param({"DOUBLE", "FLOAT", "SCALED_INT"})
+    private PriceEncoding priceEncoding;
+
+    private Path storageDirectory;
+    private DoubleRingBuffer buffer;
+    private int index;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        index = 0;
+        storageDirectory = Files.createTempDirectory("ring-buffer-benchmark");
+        buffer = new DoubleRingBuffer(new DoubleStorageFactory(storageType, storageDirectory.toString(), priceEncoding, 2).allocate(CAPACITY));
+        for (var i = 0; i < CAPACITY; i++) {
+            buffer.add(i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        buffer = null;
+        Files.deleteIfExists(storageDirectory);
+    }
+
+    @Benchmark
+    public void add() {
+        buffer.add(index++ & 0xFFFF);
+    }
+
+    @Benchmark
+    public double getByIndex() {
+        final var currentIndex = buffer.currentIndex();
+        index = index + 7919 < CAPACITY ? index + 7919 : index + 7919 - CAPACITY;
+        return buffer.getByIndex(currentIndex - index);
+    }
+}
@@ -0,0 +1,33 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.util.Random;
+
+/**
+ * Price distributions of benchmark batches. Monotonically rising and falling prices are the worst cases of
+ * the max and min dequeues, since every price either pops all entries or is kept until it leaves the widest window.
+ */
+public enum PriceDistribution {
+    RANDOM,
+    RISING,
+    FALLING;
+
+    /**
+     * Generates batches which continue each other, so a monotonic distribution stays monotonic across batches.
+     */
+    public double[][] batches(int batchesAmount,
+                              int batchSize) {
+        final var random = new Random(42);
+        final var batches = new double[batchesAmount][batchSize];
+        for (var batch = 0; batch < batchesAmount; batch++) {
+            for (var i = 0; i < batchSize; i++) {
+                final var point = (long) batch * batchSize + i;
+                batches[batch][i] = switch (this) {
+                    case RANDOM -> 100 * random.nextDouble();
+                    case RISING -> point;
+                    case FALLING -> -point;
+                };
+            }
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,60 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
+
+/**
+ * Measures a batch ingest of a single symbol, which keeps prices of the last {@code 1e{maxK}} points.
+ */
+@State(Scope.Benchmark)
+public class TradingDataIngestBenchmark {
+    private static final int BATCHES_AMOUNT = 64;
+    private static final String SYMBOL = "PLN";
+
+    @Param({"10", "1000", "10000"})
+    private int batchSize;
+    @Param({"RANDOM", "RISING", "FALLING"})
+    private PriceDistribution distribution;
+    @Param("6")
+    private int maxK;
+
+    private InMemorySymbolTradingDataRepository repository;
+    private double[][] batches;
+    private List<List<Double>> boxedBatches;
+    private int batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemorySymbolTradingDataRepository(1, maxK, batchSize, heapStorageFactory(), disabledJournal(), disabledMetrics());
+        batches = distribution.batches(BATCHES_AMOUNT, batchSize);
+        boxedBatches = Arrays.stream(batches)
+                .map(prices -> Arrays.stream(prices).boxed().toList())
+                .toList();
+    }
+
+    @Benchmark
+    public void addPrimitiveBatch() {
+        repository.addSymbolTradingData(SYMBOL, batches[nextBatch()], batchSize);
+    }
+
+    @Benchmark
+    public void addBoxedBatch() {
+        repository.addSymbolTradingData(SYMBOL, boxedBatches.get(nextBatch()));
+    }
+
+    private int nextBatch() {
+        batch = batch + 1 < BATCHES_AMOUNT ? batch + 1 : 0;
+        return batch;
+    }
+}
@@ -0,0 +1,60 @@
+package com.volodymyrkozlov.tradingdatamanager.service;
+
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+import com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool;
+import com.volodymyrkozlov.tradingdatamanager.repository.InMemorySymbolTradingDataRepository;
+import com.volodymyrkozlov.tradingdatamanager.repository.PriceDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
+
+/**
+ * Measures a writer and readers of the same symbol running concurrently.
+ */
+@State(Scope.Group)
+public class FinancialDataContentionBenchmark {
+    private static final int MAX_K = 6;
+    private static final int BATCHES_AMOUNT = 64;
+    private static final String SYMBOL = "PLN";
+
+    @Param({"10", "1000"})
+    private int batchSize;
+    @Param({"1", "6"})
+    private int k;
+
+    private SymbolFinancialDataService service;
+    private double[][] batches;
+    private int batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SymbolFinancialDataService(
+                new InMemorySymbolTradingDataRepository(1, MAX_K, batchSize, heapStorageFactory(), disabledJournal(), disabledMetrics()), MAX_K, new TradingBufferPool(batchSize, 1));
+        batches = PriceDistribution.RANDOM.batches(BATCHES_AMOUNT, batchSize);
+        service.addFinancialData(SYMBOL, batches[0], batchSize);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write() {
+        batch = batch + 1 < BATCHES_AMOUNT ? batch + 1 : 0;
+        service.addFinancialData(SYMBOL, batches[batch], batchSize);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public FinancialDataResponse read() {
+        return service.getFinancialData(SYMBOL, k);
+    }
+}
@@ -0,0 +1,54 @@
+package com.volodymyrkozlov.tradingdatamanager.service;
+
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+import com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool;
+import com.volodymyrkozlov.tradingdatamanager.repository.InMemorySymbolTradingDataRepository;
+import com.volodymyrkozlov.tradingdatamanager.repository.PriceDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
+import static com.volodymyrkozlov.tradingdatamanager.utils.MathUtils.powerOfTen;
+
+/**
+ * Measures stats of every K and of windows of {@code 0.75e{k}} prices, which are not precomputed,
+ * against a symbol which has prices of the whole widest window.
+ */
+@State(Scope.Benchmark)
+public class FinancialDataStatsBenchmark {
+    private static final int MAX_K = 6;
+    private static final int BATCH_SIZE = 10_000;
+    private static final String SYMBOL = "PLN";
+
+    @Param({"1", "2", "3", "4", "5", "6"})
+    private int k;
+    @Param({"RANDOM", "FALLING"})
+    private PriceDistribution distribution;
+
+    private SymbolFinancialDataService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SymbolFinancialDataService(
+                new InMemorySymbolTradingDataRepository(1, MAX_K, BATCH_SIZE, heapStorageFactory(), disabledJournal(), disabledMetrics()), MAX_K, new TradingBufferPool(BATCH_SIZE, 1));
+        for (final var batch : distribution.batches(100, BATCH_SIZE)) {
+            service.addFinancialData(SYMBOL, batch, batch.length);
+        }
+    }
+
+    @Benchmark
+    public FinancialDataResponse getFinancialData() {
+        return service.getFinancialData(SYMBOL, k);
+    }
+
+    @Benchmark
+    public FinancialDataResponse getWindowFinancialData() {
+        return service.getWindowFinancialData(SYMBOL, powerOfTen(k) * 3 / 4);
+    }
+}
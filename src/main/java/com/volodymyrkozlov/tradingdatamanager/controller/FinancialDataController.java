@@ -1,25 +1,99 @@
 package com.volodymyrkozlov.tradingdatamanager.controller;
 
 import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataBatchRequest;
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataBatchResponse;
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataBatchesRequest;
 import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+import com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool;
+import com.volodymyrkozlov.tradingdatamanager.service.FinancialDataStreamService;
 import com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
 @RestController
 public class FinancialDataController {
     private final SymbolFinancialDataService symbolFinancialDataService;
+    private final FinancialDataStreamService financialDataStreamService;
+    private final TradingBufferPool tradingBufferPool;
+    private final Duration statsStreamTimeout;
 
-    public FinancialDataController(SymbolFinancialDataService symbolFinancialDataService) {
+    public FinancialDataController(SymbolFinancialDataService symbolFinancialDataService,
+                                   FinancialDataStreamService financialDataStreamService,
+                                   TradingBufferPool tradingBufferPool,
+                                   @Value("${stats-stream-timeout}") Duration statsStreamTimeout) {
         this.symbolFinancialDataService = symbolFinancialDataService;
+        this.financialDataStreamService = financialDataStreamService;
+        this.tradingBufferPool = tradingBufferPool;
+        this.statsStreamTimeout = statsStreamTimeout;
+    }
+
+    /**
+     * Responds once the batch is applied, or with {@code 202} and the batch sequence once it's queued if {@code async} is set.
+     * Buffers of the request are returned to the pool once the batch is copied into the writer of the symbol.
+     */
+    @PostMapping(value = "/add_batch", consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity<FinancialDataBatchResponse> addBatch(@RequestBody FinancialDataBatchRequest request,
+                                                               @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final var timestamps = request.timestamps() == null ? null : request.timestamps().timestamps();
+        try {
+            if (async) {
+                return accepted(symbolFinancialDataService.queueFinancialData(request.symbol(), request.values().prices(), timestamps, request.values().length()));
+            }
+
+            if (timestamps == null) {
+                symbolFinancialDataService.addFinancialData(request.symbol(), request.values().prices(), request.values().length());
+            } else {
+                symbolFinancialDataService.addFinancialData(request.symbol(), request.values().prices(), timestamps, request.values().length());
+            }
+            return ResponseEntity.ok().build();
+        } finally {
+            tradingBufferPool.release(request.values().prices());
+            tradingBufferPool.release(timestamps);
+        }
+    }
+
+    @PostMapping(value = "/add_batches", consumes = APPLICATION_JSON_VALUE)
+    public void addBatches(@RequestBody FinancialDataBatchesRequest request) {
+        try {
+            symbolFinancialDataService.addFinancialData(request);
+        } finally {
+            tradingBufferPool.release(request.prices());
+        }
+    }
+
+    @PostMapping(value = "/add_batch", consumes = APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<FinancialDataBatchResponse> addBinaryBatch(@RequestParam("symbol") String symbol,
+                                                                     @RequestParam(value = "async", defaultValue = "false") boolean async,
+                                                                     InputStream values) {
+        if (async) {
+            return accepted(symbolFinancialDataService.queueFinancialData(symbol, values));
+        }
+
+        symbolFinancialDataService.addFinancialData(symbol, values);
+        return ResponseEntity.ok().build();
     }
 
-    @PostMapping("/add_batch")
-    public void addBatch(@RequestBody FinancialDataBatchRequest request) {
-        symbolFinancialDataService.addFinancialData(request.symbol(), request.values());
+    @DeleteMapping("/symbols/{symbol}")
+    public void removeSymbol(@PathVariable("symbol") String symbol) {
+        symbolFinancialDataService.removeFinancialData(symbol);
     }
 
     @GetMapping("/stats/{symbol}/{k}")
@@ -27,4 +101,43 @@ public class FinancialDataController {
                                           @PathVariable("k") int k) {
         return symbolFinancialDataService.getFinancialData(symbol, k);
     }
+
+    @GetMapping(value = "/stats/{symbol}", params = "window")
+    public FinancialDataResponse getWindowStats(@PathVariable("symbol") String symbol,
+                                                @RequestParam("window") int window) {
+        return symbolFinancialDataService.getWindowFinancialData(symbol, window);
+    }
+
+    @GetMapping(value = "/stats/{symbol}", params = "period")
+    public FinancialDataResponse getPeriodStats(@PathVariable("symbol") String symbol,
+                                                @RequestParam("period") Duration period) {
+        return symbolFinancialDataService.getPeriodFinancialData(symbol, period);
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Map<Integer, FinancialDataResponse>> getStats(@RequestParam("symbols") List<String> symbols,
+                                                                     @RequestParam("k") List<Integer> ks) {
+        return symbolFinancialDataService.getFinancialData(symbols, ks);
+    }
+
+    /**
+     * Streams {@code stats} events with stats of every K of the symbol, current stats first and then stats after
+     * applied batches. A slow client skips intermediate stats and receives only the latest ones.
+     */
+    @GetMapping(value = "/stats/{symbol}/stream", produces = TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStats(@PathVariable("symbol") String symbol,
+                                  @RequestParam("k") List<Integer> ks) {
+        final var emitter = new SseEmitter(statsStreamTimeout.toMillis());
+        final var unsubscribe = financialDataStreamService.subscribe(symbol, ks, financialData -> emitter.send(SseEmitter.event()
+                .name("stats")
+                .data(financialData, APPLICATION_JSON)));
+        emitter.onCompletion(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    private static ResponseEntity<FinancialDataBatchResponse> accepted(long sequence) {
+        return ResponseEntity.accepted()
+                .body(new FinancialDataBatchResponse(sequence));
+    }
 }
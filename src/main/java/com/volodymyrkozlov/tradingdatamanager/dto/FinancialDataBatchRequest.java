@@ -1,14 +1,20 @@
 package com.volodymyrkozlov.tradingdatamanager.dto;
 
-import java.util.List;
-
 import static com.volodymyrkozlov.tradingdatamanager.utils.ValidationUtils.validateRequired;
 
+/**
+ * Batch of prices of a symbol, timestamps are optional epoch millis of the prices.
+ */
 public record FinancialDataBatchRequest(String symbol,
-                                        List<Double> values) {
+                                        TradingPrices values,
+                                        TradingTimestamps timestamps) {
 
     public FinancialDataBatchRequest {
         validateRequired(symbol, "symbol");
-        validateRequired(symbol, "values");
+        validateRequired(values, "values");
+
+        if (timestamps != null && timestamps.length() != values.length()) {
+            throw new IllegalArgumentException("Timestamps amount %s doesn't match %s values".formatted(timestamps.length(), values.length()));
+        }
     }
 }
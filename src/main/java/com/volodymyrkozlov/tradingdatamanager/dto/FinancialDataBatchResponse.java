@@ -0,0 +1,13 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import static com.volodymyrkozlov.tradingdatamanager.utils.ValidationUtils.validateRequired;
+
+/**
+ * Acknowledgement of a queued batch, the batch is visible in stats once their sequence reaches the batch sequence.
+ */
+public record FinancialDataBatchResponse(Long sequence) {
+
+    public FinancialDataBatchResponse {
+        validateRequired(sequence, "sequence");
+    }
+}
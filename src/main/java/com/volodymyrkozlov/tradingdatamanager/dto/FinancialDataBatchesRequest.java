@@ -0,0 +1,28 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.List;
+
+import static com.volodymyrkozlov.tradingdatamanager.utils.ValidationUtils.validateRequired;
+
+/**
+ * Batches of several symbols, prices of the batch {@code i} are {@code prices[offsets[i]..offsets[i + 1])}.
+ * Prices are kept in a pooled primitive buffer, which is returned to the pool once the request is processed,
+ * so they must not be kept afterwards.
+ */
+@JsonDeserialize(using = FinancialDataBatchesRequestDeserializer.class)
+public record FinancialDataBatchesRequest(List<String> symbols,
+                                          int[] offsets,
+                                          double[] prices) {
+
+    public FinancialDataBatchesRequest {
+        validateRequired(symbols, "symbols");
+        validateRequired(offsets, "offsets");
+        validateRequired(prices, "prices");
+
+        if (offsets.length != symbols.size() + 1) {
+            throw new IllegalArgumentException("Offsets amount %s doesn't match %s batches".formatted(offsets.length, symbols.size()));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool.acquirePrices;
+import static com.volodymyrkozlov.tradingdatamanager.dto.TradingPricesDeserializer.readPrices;
+import static com.volodymyrkozlov.tradingdatamanager.utils.ValidationUtils.validateRequired;
+
+/**
+ * Parses a JSON array of {@code {"symbol": ..., "values": [...]}} batches, values of all batches are appended
+ * one after another to a single primitive buffer of the {@link TradingBufferPool}.
+ */
+public class FinancialDataBatchesRequestDeserializer extends JsonDeserializer<FinancialDataBatchesRequest> {
+
+    @Override
+    public FinancialDataBatchesRequest deserialize(JsonParser parser,
+                                                   DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (FinancialDataBatchesRequest) context.handleUnexpectedToken(FinancialDataBatchesRequest.class, parser);
+        }
+
+        final var symbols = new ArrayList<String>();
+        var offsets = new int[16];
+        var prices = new TradingPrices(acquirePrices(context), 0);
+        for (var token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                return (FinancialDataBatchesRequest) context.handleUnexpectedToken(FinancialDataBatchesRequest.class, parser);
+            }
+
+            String symbol = null;
+            var hasValues = false;
+            final var batchOffset = prices.length();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var fieldName = parser.currentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "symbol" -> symbol = parser.getValueAsString();
+                    case "values" -> {
+                        if (hasValues) {
+                            throw new IllegalArgumentException("Batch of %s has several values".formatted(symbol));
+                        }
+                        prices = readPrices(parser, context, prices);
+                        hasValues = true;
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            validateRequired(symbol, "symbol");
+            if (!hasValues) {
+                throw new IllegalArgumentException("values is required");
+            }
+
+            if (symbols.size() + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            }
+            offsets[symbols.size()] = batchOffset;
+            symbols.add(symbol);
+        }
+        offsets[symbols.size()] = prices.length();
+
+        return new FinancialDataBatchesRequest(symbols, Arrays.copyOf(offsets, symbols.size() + 1), prices.prices());
+    }
+}
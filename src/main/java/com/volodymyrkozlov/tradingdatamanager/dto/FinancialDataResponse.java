@@ -6,7 +6,10 @@ public record FinancialDataResponse(Double min,
                                     Double max,
                                     Double last,
                                     Double avg,
-                                    Double var) {
+                                    Double var,
+                                    Long sequence,
+                                    Long rejected,
+                                    Long lastRejectedSequence) {
 
     public FinancialDataResponse {
         validateRequired(min, "min");
@@ -14,6 +17,9 @@ public record FinancialDataResponse(Double min,
         validateRequired(last, "last");
         validateRequired(avg, "avg");
         validateRequired(var, "var");
+        validateRequired(sequence, "sequence");
+        validateRequired(rejected, "rejected");
+        validateRequired(lastRejectedSequence, "lastRejectedSequence");
     }
 
     public static Builder financialDataResponseBuilder() {
@@ -26,6 +32,9 @@ public record FinancialDataResponse(Double min,
         private Double last;
         private Double avg;
         private Double var;
+        private Long sequence;
+        private Long rejected;
+        private Long lastRejectedSequence;
 
         public Builder min(Double min) {
             this.min = min;
@@ -52,8 +61,32 @@ public record FinancialDataResponse(Double min,
             return this;
         }
 
+        /**
+         * Sequence of the last batch applied to the symbol since it was added, all batches up to it are included in the stats.
+         */
+        public Builder sequence(Long sequence) {
+            this.sequence = sequence;
+            return this;
+        }
+
+        /**
+         * Amount of queued batches of the symbol which were rejected once they were applied.
+         */
+        public Builder rejected(Long rejected) {
+            this.rejected = rejected;
+            return this;
+        }
+
+        /**
+         * Sequence of the last rejected queued batch of the symbol or {@code 0} if none was rejected.
+         */
+        public Builder lastRejectedSequence(Long lastRejectedSequence) {
+            this.lastRejectedSequence = lastRejectedSequence;
+            return this;
+        }
+
         public FinancialDataResponse build() {
-            return new FinancialDataResponse(min, max, last, avg, var);
+            return new FinancialDataResponse(min, max, last, avg, var, sequence, rejected, lastRejectedSequence);
         }
     }
 
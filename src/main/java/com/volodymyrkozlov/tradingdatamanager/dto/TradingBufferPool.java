@@ -0,0 +1,105 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of primitive buffers of {@code max-batch-size} values, which request batches are parsed into.
+ * Requests run on virtual threads, which are never reused, so buffers are taken by a request and returned once
+ * its batches are handed over to the writers. A buffer which isn't returned or grows beyond the batch size is
+ * left to the GC, a pool which is empty allocates a new buffer.
+ * The pool is attached to the object mapper as a shared attribute, a mapper without it allocates buffers per request.
+ * Binary batches are read through pooled byte chunks into pooled prices buffers.
+ */
+@Component
+public class TradingBufferPool implements Jackson2ObjectMapperBuilderCustomizer {
+    private static final int UNPOOLED_CAPACITY = 1 << 10;
+    private static final int BYTES_BUFFER_SIZE = 1 << 13;
+
+    private final int bufferSize;
+    private final BlockingQueue<double[]> pricesBuffers;
+    private final BlockingQueue<long[]> timestampsBuffers;
+    private final BlockingQueue<byte[]> bytesBuffers;
+
+    public TradingBufferPool(@Value("${max-batch-size}") int bufferSize,
+                             @Value("${batch-buffer-pool-size}") int poolSize) {
+        this.bufferSize = bufferSize;
+        this.pricesBuffers = new ArrayBlockingQueue<>(poolSize);
+        this.timestampsBuffers = new ArrayBlockingQueue<>(poolSize);
+        this.bytesBuffers = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    public void customize(Jackson2ObjectMapperBuilder builder) {
+        builder.postConfigurer(this::attach);
+    }
+
+    public void attach(ObjectMapper objectMapper) {
+        objectMapper.setDefaultAttributes(objectMapper.getDeserializationConfig()
+                .getAttributes()
+                .withSharedAttribute(TradingBufferPool.class, this));
+    }
+
+    public double[] acquirePrices() {
+        final var prices = pricesBuffers.poll();
+        return prices == null ? new double[bufferSize] : prices;
+    }
+
+    public long[] acquireTimestamps() {
+        final var timestamps = timestampsBuffers.poll();
+        return timestamps == null ? new long[bufferSize] : timestamps;
+    }
+
+    /**
+     * @return chunk of bytes whose size is a multiple of {@link Double#BYTES}
+     */
+    public byte[] acquireBytes() {
+        final var bytes = bytesBuffers.poll();
+        return bytes == null ? new byte[BYTES_BUFFER_SIZE] : bytes;
+    }
+
+    /**
+     * Amount of values of pooled buffers, which is the max batch size.
+     */
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the buffer to the pool, the caller must not use it afterwards.
+     */
+    public void release(double[] prices) {
+        if (prices != null && prices.length == bufferSize) {
+            pricesBuffers.offer(prices);
+        }
+    }
+
+    public void release(long[] timestamps) {
+        if (timestamps != null && timestamps.length == bufferSize) {
+            timestampsBuffers.offer(timestamps);
+        }
+    }
+
+    public void release(byte[] bytes) {
+        if (bytes != null && bytes.length == BYTES_BUFFER_SIZE) {
+            bytesBuffers.offer(bytes);
+        }
+    }
+
+    static double[] acquirePrices(DeserializationContext context) {
+        final var pool = (TradingBufferPool) context.getAttribute(TradingBufferPool.class);
+        return pool == null ? new double[UNPOOLED_CAPACITY] : pool.acquirePrices();
+    }
+
+    static long[] acquireTimestamps(DeserializationContext context) {
+        final var pool = (TradingBufferPool) context.getAttribute(TradingBufferPool.class);
+        return pool == null ? new long[UNPOOLED_CAPACITY] : pool.acquireTimestamps();
+    }
+}
@@ -0,0 +1,12 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Prices of a batch in the first {@code length} elements of a pooled primitive buffer, which is returned to the pool
+ * once the request is processed, so it must not be kept afterwards.
+ */
+@JsonDeserialize(using = TradingPricesDeserializer.class)
+public record TradingPrices(double[] prices,
+                            int length) {
+}
@@ -0,0 +1,54 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool.acquirePrices;
+
+/**
+ * Parses a JSON array of prices token by token into a primitive buffer of the {@link TradingBufferPool},
+ * so neither boxed prices, an intermediate list nor a buffer are allocated per request.
+ */
+public class TradingPricesDeserializer extends JsonDeserializer<TradingPrices> {
+
+    @Override
+    public TradingPrices deserialize(JsonParser parser,
+                                     DeserializationContext context) throws IOException {
+        return readPrices(parser, context, new TradingPrices(acquirePrices(context), 0));
+    }
+
+    /**
+     * Appends prices of the current array to the prices, the buffer is replaced by a bigger one once it's full.
+     *
+     * @return prices with the appended ones
+     */
+    static TradingPrices readPrices(JsonParser parser,
+                                    DeserializationContext context,
+                                    TradingPrices tradingPrices) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            context.handleUnexpectedToken(TradingPrices.class, parser);
+            return tradingPrices;
+        }
+
+        var prices = tradingPrices.prices();
+        var length = tradingPrices.length();
+        for (var token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                context.handleUnexpectedToken(double.class, parser);
+                continue;
+            }
+
+            if (length == prices.length) {
+                prices = Arrays.copyOf(prices, 2 * prices.length);
+            }
+            prices[length++] = parser.getDoubleValue();
+        }
+
+        return new TradingPrices(prices, length);
+    }
+}
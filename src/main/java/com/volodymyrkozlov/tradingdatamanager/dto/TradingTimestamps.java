@@ -0,0 +1,12 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Epoch millis timestamps of a batch in the first {@code length} elements of a pooled primitive buffer, which is returned
+ * to the pool once the request is processed, so it must not be kept afterwards.
+ */
+@JsonDeserialize(using = TradingTimestampsDeserializer.class)
+public record TradingTimestamps(long[] timestamps,
+                                int length) {
+}
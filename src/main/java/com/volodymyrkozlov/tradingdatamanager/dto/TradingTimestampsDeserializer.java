@@ -0,0 +1,40 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool.acquireTimestamps;
+
+/**
+ * Parses a JSON array of epoch millis timestamps token by token into a primitive buffer of the {@link TradingBufferPool}.
+ */
+public class TradingTimestampsDeserializer extends JsonDeserializer<TradingTimestamps> {
+    @Override
+    public TradingTimestamps deserialize(JsonParser parser,
+                                         DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (TradingTimestamps) context.handleUnexpectedToken(TradingTimestamps.class, parser);
+        }
+
+        var timestamps = acquireTimestamps(context);
+        var length = 0;
+        for (var token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.VALUE_NUMBER_INT) {
+                context.handleUnexpectedToken(long.class, parser);
+                continue;
+            }
+
+            if (length == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, 2 * timestamps.length);
+            }
+            timestamps[length++] = parser.getLongValue();
+        }
+
+        return new TradingTimestamps(timestamps, length);
+    }
+}
@@ -1,5 +1,6 @@
 package com.volodymyrkozlov.tradingdatamanager.error;
 
+import com.volodymyrkozlov.tradingdatamanager.repository.BatchQueueFullException;
 import com.volodymyrkozlov.tradingdatamanager.repository.EntityNotFoundException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -7,6 +8,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 @ControllerAdvice
 public class ExceptionHandlingController {
@@ -28,4 +30,10 @@ public class ExceptionHandlingController {
         return ResponseEntity.status(NOT_FOUND)
                 .body(new ResponseError(ex.getMessage()));
     }
+
+    @ExceptionHandler(BatchQueueFullException.class)
+    public ResponseEntity<ResponseError> handle(BatchQueueFullException ex) {
+        return ResponseEntity.status(TOO_MANY_REQUESTS)
+                .body(new ResponseError(ex.getMessage()));
+    }
 }
@@ -0,0 +1,412 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static com.volodymyrkozlov.tradingdatamanager.journal.JournalSegmentReader.RECORD_HEADER_BYTES;
+import static com.volodymyrkozlov.tradingdatamanager.journal.JournalSegmentReader.REMOVAL_PRICES_AMOUNT;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Write-ahead journal of added batches stored in segment files named by the journal offset of their first record.
+ * A record is {@code int payload length, int CRC32C of payload, payload}, where payload is
+ * {@code short symbol length, UTF-8 symbol, int prices amount, little-endian double prices},
+ * followed by {@code little-endian long timestamps} if the prices have timestamps.
+ * A removal of a symbol is a record with prices amount {@code -1} and no prices.
+ * Appends are written under the symbol write lock, while fsync is done by a single flusher thread,
+ * so all batches appended during an fsync are made durable by the next one (group commit).
+ * A sync requested without waiting is done by the flusher within the async sync delay, so batches appended meanwhile
+ * are made durable by the same fsync.
+ */
+@Component
+public class FileTradingDataJournal implements TradingDataJournal, AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int INITIAL_RECORD_BUFFER_BYTES = 64 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentSize;
+    private final long asyncSyncDelayNanos;
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer recordBuffer = ByteBuffer.allocateDirect(INITIAL_RECORD_BUFFER_BYTES).order(LITTLE_ENDIAN);
+    private FileChannel segment;
+    private long segmentOffset;
+    private long writtenOffset;
+    private long requestedOffset;
+    private long durableOffset;
+    private long asyncRequestedOffset;
+    private long asyncSyncDeadlineNanos;
+    private IOException failure;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    public FileTradingDataJournal(@Value("${journal-enabled}") boolean enabled,
+                                  @Value("${journal-directory}") String directory,
+                                  @Value("${journal-segment-size}") DataSize segmentSize,
+                                  @Value("${journal-async-sync-delay}") Duration asyncSyncDelay) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize.toBytes();
+        this.asyncSyncDelayNanos = asyncSyncDelay.toNanos();
+
+        if (this.segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segment size must be less than 2GB");
+        }
+
+        if (enabled) {
+            open();
+        }
+    }
+
+    @Override
+    public void append(String symbol,
+                       double[] prices,
+                       long[] timestamps,
+                       int offset,
+                       int length) {
+        if (enabled) {
+            appendRecord(symbol, prices, timestamps, offset, length);
+        }
+    }
+
+    @Override
+    public void remove(String symbol) {
+        if (enabled) {
+            appendRecord(symbol, null, null, 0, REMOVAL_PRICES_AMOUNT);
+        }
+    }
+
+    @Override
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+
+        final long offset;
+        synchronized (appendLock) {
+            offset = writtenOffset;
+        }
+
+        synchronized (syncLock) {
+            if (offset > requestedOffset) {
+                requestedOffset = offset;
+                syncLock.notifyAll();
+            }
+
+            while (durableOffset < offset) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Trading data journal cannot be synced", failure);
+                }
+                if (closed) {
+                    throw new IllegalStateException("Trading data journal is closed");
+                }
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Trading data journal sync is interrupted", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Requests a sync of appended records without waiting for it, they're made durable within the async sync delay.
+     */
+    @Override
+    public void syncAsync() {
+        if (!enabled) {
+            return;
+        }
+
+        final long offset;
+        synchronized (appendLock) {
+            offset = writtenOffset;
+        }
+
+        synchronized (syncLock) {
+            if (offset <= asyncRequestedOffset || offset <= requestedOffset) {
+                return;
+            }
+            if (asyncRequestedOffset <= durableOffset) {
+                // the first pending record sets the deadline, records appended before it are synced together
+                asyncSyncDeadlineNanos = System.nanoTime() + asyncSyncDelayNanos;
+                syncLock.notifyAll();
+            }
+            asyncRequestedOffset = offset;
+        }
+    }
+
+    /**
+     * Journal offset up to which records are durable.
+     */
+    long durableOffset() {
+        synchronized (syncLock) {
+            return durableOffset;
+        }
+    }
+
+    /**
+     * Replays all journaled records in their order, a torn record at the end of the journal is truncated on open.
+     */
+    public void replay(JournalRecordConsumer consumer) {
+        if (!enabled) {
+            return;
+        }
+
+        final var reader = new JournalSegmentReader();
+        final var segmentFiles = segmentFiles();
+        for (final var segmentFile : segmentFiles) {
+            final var validBytes = reader.read(segmentFile, segmentOffset(segmentFile), consumer);
+            if (segmentFile != segmentFiles.getLast() && validBytes < fileSize(segmentFile)) {
+                throw new IllegalStateException("Trading data journal segment %s is corrupted".formatted(segmentFile));
+            }
+        }
+    }
+
+    /**
+     * Journal offset of the next appended record.
+     */
+    public long offset() {
+        synchronized (appendLock) {
+            return writtenOffset;
+        }
+    }
+
+    /**
+     * Deletes segments which contain only records before the offset, the current segment is never deleted.
+     */
+    public void deleteSegmentsBefore(long offset) {
+        if (!enabled) {
+            return;
+        }
+
+        final var segmentFiles = segmentFiles();
+        for (var i = 0; i < segmentFiles.size() - 1 && segmentOffset(segmentFiles.get(i + 1)) <= offset; i++) {
+            try {
+                Files.delete(segmentFiles.get(i));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Trading data journal segment %s cannot be deleted".formatted(segmentFiles.get(i)), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!enabled || closed) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            closed = true;
+            syncLock.notifyAll();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (appendLock) {
+            segment.force(false);
+            segment.close();
+        }
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            final var segmentFiles = segmentFiles();
+
+            if (segmentFiles.isEmpty()) {
+                openSegment(0);
+            } else {
+                final var lastSegmentFile = segmentFiles.getLast();
+                final var validBytes = new JournalSegmentReader().read(lastSegmentFile, 0, null);
+                segmentOffset = segmentOffset(lastSegmentFile);
+                segment = FileChannel.open(lastSegmentFile, READ, WRITE);
+                segment.truncate(validBytes);
+                segment.position(validBytes);
+                writtenOffset = segmentOffset + validBytes;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data journal cannot be opened in %s".formatted(directory), e);
+        }
+
+        requestedOffset = writtenOffset;
+        durableOffset = writtenOffset;
+        asyncRequestedOffset = writtenOffset;
+        flusher = Thread.ofPlatform()
+                .name("trading-data-journal-flusher")
+                .daemon()
+                .start(this::flush);
+    }
+
+    private void flush() {
+        while (true) {
+            synchronized (syncLock) {
+                while (!closed && requestedOffset <= durableOffset) {
+                    final var asyncSyncNanos = asyncRequestedOffset > durableOffset && failure == null ? asyncSyncDeadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+                    if (asyncSyncNanos <= 0) {
+                        break;
+                    }
+                    try {
+                        if (asyncSyncNanos == Long.MAX_VALUE) {
+                            syncLock.wait();
+                        } else {
+                            syncLock.wait(asyncSyncNanos / 1_000_000, (int) (asyncSyncNanos % 1_000_000));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+
+            final FileChannel flushedSegment;
+            final long flushedOffset;
+            synchronized (appendLock) {
+                flushedSegment = segment;
+                flushedOffset = writtenOffset;
+            }
+
+            IOException flushFailure = null;
+            try {
+                flushedSegment.force(false);
+            } catch (ClosedChannelException e) {
+                // the segment is rolled, it's forced before it's closed
+            } catch (IOException e) {
+                flushFailure = e;
+            }
+
+            synchronized (syncLock) {
+                if (flushFailure != null) {
+                    failure = flushFailure;
+                } else {
+                    durableOffset = Math.max(durableOffset, flushedOffset);
+                }
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    private void appendRecord(String symbol,
+                              double[] prices,
+                              long[] timestamps,
+                              int offset,
+                              int length) {
+        final var symbolBytes = symbol.getBytes(UTF_8);
+        if (symbolBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Symbol %s is too long to be journaled".formatted(symbol));
+        }
+
+        final var pricesAmount = Math.max(length, 0);
+        final var timestampsAmount = timestamps != null ? pricesAmount : 0;
+        final var payloadBytes = Short.BYTES + symbolBytes.length + Integer.BYTES + pricesAmount * Double.BYTES + timestampsAmount * Long.BYTES;
+        final var recordBytes = RECORD_HEADER_BYTES + payloadBytes;
+
+        synchronized (appendLock) {
+            final var record = recordBuffer(recordBytes);
+            record.putInt(payloadBytes)
+                    .putInt(0)
+                    .putShort((short) symbolBytes.length)
+                    .put(symbolBytes)
+                    .putInt(length);
+            if (prices != null) {
+                record.asDoubleBuffer().put(prices, offset, pricesAmount);
+            }
+            if (timestamps != null) {
+                record.position(record.position() + pricesAmount * Double.BYTES)
+                        .asLongBuffer()
+                        .put(timestamps, offset, timestampsAmount);
+            }
+            record.position(0);
+
+            checksum.reset();
+            checksum.update(record.slice(RECORD_HEADER_BYTES, payloadBytes));
+            record.putInt(Integer.BYTES, (int) checksum.getValue());
+
+            try {
+                if (writtenOffset > segmentOffset && writtenOffset - segmentOffset + recordBytes > segmentSize) {
+                    rollSegment();
+                }
+                while (record.hasRemaining()) {
+                    segment.write(record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Trading data record of %s cannot be journaled".formatted(symbol), e);
+            }
+
+            writtenOffset += recordBytes;
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        openSegment(writtenOffset);
+    }
+
+    private void openSegment(long offset) throws IOException {
+        segmentOffset = offset;
+        segment = FileChannel.open(directory.resolve(segmentFileName(offset)), CREATE, WRITE);
+        segment.position(segment.size());
+    }
+
+    private ByteBuffer recordBuffer(int recordBytes) {
+        if (recordBuffer.capacity() < recordBytes) {
+            recordBuffer = ByteBuffer.allocateDirect(Math.max(recordBytes, 2 * recordBuffer.capacity())).order(LITTLE_ENDIAN);
+        }
+        return recordBuffer.clear().limit(recordBytes);
+    }
+
+    private List<Path> segmentFiles() {
+        try (final var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data journal segments cannot be listed in %s".formatted(directory), e);
+        }
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data journal segment %s cannot be read".formatted(file), e);
+        }
+    }
+
+    private static String segmentFileName(long offset) {
+        return "%020d%s".formatted(offset, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentOffset(Path segmentFile) {
+        final var fileName = segmentFile.getFileName().toString();
+        return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
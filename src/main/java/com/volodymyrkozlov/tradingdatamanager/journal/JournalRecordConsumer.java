@@ -0,0 +1,20 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+public interface JournalRecordConsumer {
+
+    /**
+     * @param offset     journal offset of the record
+     * @param timestamps timestamps of the prices or {@code null} if the prices were added without them
+     */
+    void accept(long offset,
+                String symbol,
+                double[] prices,
+                long[] timestamps,
+                int length);
+
+    /**
+     * @param offset journal offset of the removal record
+     */
+    void remove(long offset,
+                String symbol);
+}
@@ -0,0 +1,109 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads records of a memory-mapped journal segment into a reusable prices buffer.
+ */
+class JournalSegmentReader {
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    static final int REMOVAL_PRICES_AMOUNT = -1;
+    private static final int MIN_PAYLOAD_BYTES = Short.BYTES + Integer.BYTES;
+
+    private final CRC32C checksum = new CRC32C();
+    private double[] prices = new double[0];
+    private long[] timestamps = new long[0];
+
+    /**
+     * Passes records to the consumer until the end of the segment or the first torn record,
+     * if the consumer is {@code null} records are only validated.
+     *
+     * @return bytes of valid records in the segment
+     */
+    int read(Path segmentFile,
+             long segmentOffset,
+             JournalRecordConsumer consumer) {
+        try (final var channel = FileChannel.open(segmentFile, READ)) {
+            final var size = Math.toIntExact(channel.size());
+            final var segment = channel.map(READ_ONLY, 0, size).order(LITTLE_ENDIAN);
+
+            var position = 0;
+            while (size - position >= RECORD_HEADER_BYTES) {
+                final var payloadBytes = segment.getInt(position);
+                final var payloadChecksum = segment.getInt(position + Integer.BYTES);
+                if (payloadBytes < MIN_PAYLOAD_BYTES || payloadBytes > size - position - RECORD_HEADER_BYTES) {
+                    break;
+                }
+
+                checksum.reset();
+                checksum.update(segment.slice(position + RECORD_HEADER_BYTES, payloadBytes));
+                if ((int) checksum.getValue() != payloadChecksum) {
+                    break;
+                }
+
+                if (consumer != null) {
+                    accept(segment, segmentOffset + position, position + RECORD_HEADER_BYTES, payloadBytes, consumer);
+                }
+                position += RECORD_HEADER_BYTES + payloadBytes;
+            }
+
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data journal segment %s cannot be read".formatted(segmentFile), e);
+        }
+    }
+
+    private void accept(ByteBuffer segment,
+                        long recordOffset,
+                        int offset,
+                        int payloadBytes,
+                        JournalRecordConsumer consumer) {
+        final var payloadEnd = offset + payloadBytes;
+        final var symbolBytes = new byte[segment.getShort(offset)];
+        offset += Short.BYTES;
+        segment.get(offset, symbolBytes);
+        offset += symbolBytes.length;
+
+        final var length = segment.getInt(offset);
+        offset += Integer.BYTES;
+        if (length == REMOVAL_PRICES_AMOUNT) {
+            consumer.remove(recordOffset, new String(symbolBytes, UTF_8));
+            return;
+        }
+
+        if (prices.length < length) {
+            prices = new double[length];
+        }
+        segment.slice(offset, length * Double.BYTES)
+                .order(LITTLE_ENDIAN)
+                .asDoubleBuffer()
+                .get(prices, 0, length);
+
+        offset += length * Double.BYTES;
+
+        if (payloadEnd - offset < length * Long.BYTES) {
+            consumer.accept(recordOffset, new String(symbolBytes, UTF_8), prices, null, length);
+            return;
+        }
+
+        if (timestamps.length < length) {
+            timestamps = new long[length];
+        }
+        segment.slice(offset, length * Long.BYTES)
+                .order(LITTLE_ENDIAN)
+                .asLongBuffer()
+                .get(timestamps, 0, length);
+
+        consumer.accept(recordOffset, new String(symbolBytes, UTF_8), prices, timestamps, length);
+    }
+}
@@ -0,0 +1,24 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import java.util.Map;
+
+import static com.volodymyrkozlov.tradingdatamanager.utils.ValidationUtils.validateRequired;
+
+/**
+ * Journal offsets from which records are not restored by a snapshot.
+ *
+ * @param snapshotOffset journal offset taken at the start of the snapshot, records of symbols which aren't
+ *                       in the snapshot are restored from it, since such symbols were removed or not added yet
+ * @param symbolOffsets  journal offsets of symbols in the snapshot
+ */
+public record SnapshotJournalOffsets(long snapshotOffset,
+                                     Map<String, Long> symbolOffsets) {
+
+    public SnapshotJournalOffsets {
+        validateRequired(symbolOffsets, "symbolOffsets");
+    }
+
+    public long journalOffset(String symbol) {
+        return symbolOffsets.getOrDefault(symbol, snapshotOffset);
+    }
+}
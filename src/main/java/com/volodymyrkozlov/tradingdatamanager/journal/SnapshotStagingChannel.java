@@ -0,0 +1,67 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory channel a symbol is written to under its lock, so the symbol is copied to memory while its writers wait
+ * and the copy is written to the snapshot file once they're released. Chunks are allocated as the largest symbol
+ * of a snapshot needs them, they're reused by the next symbols and left to the GC once the snapshot is written.
+ */
+class SnapshotStagingChannel implements ByteChannel {
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int chunk;
+
+    @Override
+    public int write(ByteBuffer source) {
+        final var written = source.remaining();
+        while (source.hasRemaining()) {
+            if (chunk == chunks.size()) {
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_BYTES));
+            }
+            final var target = chunks.get(chunk);
+            final var bytes = Math.min(source.remaining(), target.remaining());
+            target.put(target.position(), source, source.position(), bytes);
+            target.position(target.position() + bytes);
+            source.position(source.position() + bytes);
+            if (!target.hasRemaining()) {
+                chunk++;
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public int read(ByteBuffer target) {
+        throw new UnsupportedOperationException("Snapshot staging channel is only written");
+    }
+
+    /**
+     * Writes staged bytes to the file and clears the channel for the next symbol.
+     */
+    void transferTo(FileChannel channel) throws IOException {
+        for (var i = 0; i <= chunk && i < chunks.size(); i++) {
+            final var staged = chunks.get(i).flip();
+            while (staged.hasRemaining()) {
+                channel.write(staged);
+            }
+            staged.clear();
+        }
+        chunk = 0;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,50 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import com.volodymyrkozlov.tradingdatamanager.repository.SymbolTradingDataRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+/**
+ * Restores the latest snapshot and replays the journal records after it straight into the repository on startup,
+ * before the application starts serving requests.
+ */
+@Component
+public class TradingDataJournalRecovery {
+    private final FileTradingDataJournal journal;
+    private final TradingDataSnapshotter snapshotter;
+    private final SymbolTradingDataRepository repository;
+
+    public TradingDataJournalRecovery(FileTradingDataJournal journal,
+                                      TradingDataSnapshotter snapshotter,
+                                      SymbolTradingDataRepository repository) {
+        this.journal = journal;
+        this.snapshotter = snapshotter;
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void recover() {
+        final var snapshotOffsets = snapshotter.load();
+        journal.replay(new JournalRecordConsumer() {
+            @Override
+            public void accept(long offset,
+                               String symbol,
+                               double[] prices,
+                               long[] timestamps,
+                               int length) {
+                if (offset >= snapshotOffsets.journalOffset(symbol)) {
+                    repository.restoreSymbolTradingData(symbol, prices, timestamps, length);
+                }
+            }
+
+            @Override
+            public void remove(long offset,
+                               String symbol) {
+                if (offset >= snapshotOffsets.journalOffset(symbol)) {
+                    repository.restoreSymbolRemoval(symbol);
+                }
+            }
+        });
+        snapshotter.start();
+    }
+}
@@ -0,0 +1,208 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import com.volodymyrkozlov.tradingdatamanager.repository.SnapshotChannel;
+import com.volodymyrkozlov.tradingdatamanager.repository.SymbolTradingDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Periodically dumps all trading data entities to a snapshot file, so a restart loads buffers and dequeues as they are
+ * instead of replaying the whole journal price by price.
+ * A snapshot is {@code int magic, int version, long journal offset}, then for every symbol
+ * {@code int 1, symbol, long journal offset, entity} and {@code int 0} at the end. The journal offset of a symbol is taken under its read lock, so journal records
+ * of the symbol before it are in the snapshot and records from it are not. Journal segments before the offset
+ * taken at the start of a snapshot are deleted once the snapshot is durable.
+ * A symbol is copied to memory under its read lock and written to the file after the lock is released,
+ * so ingest of the symbol waits for a memory copy instead of disk writes.
+ */
+@Component
+public class TradingDataSnapshotter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TradingDataSnapshotter.class);
+    private static final int SNAPSHOT_MAGIC = 0x54444D53;
+    private static final int SNAPSHOT_VERSION = 5;
+    private static final int ENTITY_MARKER = 1;
+    private static final int END_MARKER = 0;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration interval;
+    private final SymbolTradingDataRepository repository;
+    private final FileTradingDataJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    public TradingDataSnapshotter(@Value("${snapshot-enabled}") boolean enabled,
+                                  @Value("${snapshot-directory}") String directory,
+                                  @Value("${snapshot-interval}") Duration interval,
+                                  SymbolTradingDataRepository repository,
+                                  FileTradingDataJournal journal) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.interval = interval;
+        this.repository = repository;
+        this.journal = journal;
+    }
+
+    /**
+     * Restores entities from the latest snapshot.
+     *
+     * @return journal offsets of the snapshot, records of a symbol before its offset are already restored
+     */
+    public SnapshotJournalOffsets load() {
+        final var snapshotFiles = enabled ? snapshotFiles() : List.<Path>of();
+        if (snapshotFiles.isEmpty()) {
+            return new SnapshotJournalOffsets(0, Map.of());
+        }
+
+        final var snapshotFile = snapshotFiles.getLast();
+        try (final var channel = FileChannel.open(snapshotFile, READ)) {
+            final var snapshot = new SnapshotChannel(channel);
+            if (snapshot.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("%s is not a trading data snapshot".formatted(snapshotFile));
+            }
+            final var version = snapshot.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Trading data snapshot version %s is not supported".formatted(version));
+            }
+
+            final var snapshotOffset = snapshot.readLong();
+            final var journalOffsets = new HashMap<String, Long>();
+            while (snapshot.readInt() == ENTITY_MARKER) {
+                final var symbol = snapshot.readString();
+                journalOffsets.put(symbol, snapshot.readLong());
+                repository.restoreSymbolTradingData(symbol, entity -> entity.readSnapshot(snapshot));
+            }
+            return new SnapshotJournalOffsets(snapshotOffset, journalOffsets);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data snapshot %s cannot be loaded".formatted(snapshotFile), e);
+        }
+    }
+
+    /**
+     * Schedules snapshots, it's called once the trading data is recovered.
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("trading-data-snapshotter")
+                .daemon()
+                .factory());
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, interval.toMillis(), interval.toMillis(), MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot to a temporary file and renames it once it's durable. Only a symbol being copied to memory
+     * blocks its writers, readers of the symbol aren't blocked.
+     */
+    public void snapshot() {
+        final var journalOffset = journal.offset();
+        final var snapshotFile = directory.resolve("%020d%s".formatted(journalOffset, SNAPSHOT_SUFFIX));
+        final var temporaryFile = directory.resolve(snapshotFile.getFileName() + TEMPORARY_SUFFIX);
+
+        try {
+            Files.createDirectories(directory);
+            try (final var channel = FileChannel.open(temporaryFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                final var snapshot = new SnapshotChannel(channel);
+                final var staging = new SnapshotStagingChannel();
+                final var stagedSnapshot = new SnapshotChannel(staging);
+                snapshot.writeInt(SNAPSHOT_MAGIC);
+                snapshot.writeInt(SNAPSHOT_VERSION);
+                snapshot.writeLong(journalOffset);
+                snapshot.flush();
+                repository.forEachTradingData((symbol, tradingData) -> {
+                    final boolean staged = tradingData.readLocked(entity -> {
+                        if (!entity.lease().isHeldBy(symbol)) {
+                            return false;
+                        }
+                        stagedSnapshot.writeInt(ENTITY_MARKER);
+                        stagedSnapshot.writeString(symbol);
+                        stagedSnapshot.writeLong(journal.offset());
+                        entity.writeSnapshot(stagedSnapshot);
+                        stagedSnapshot.flush();
+                        return true;
+                    });
+                    if (staged) {
+                        transfer(staging, channel);
+                    }
+                });
+                snapshot.writeInt(END_MARKER);
+                snapshot.flush();
+                channel.force(true);
+            }
+            Files.move(temporaryFile, snapshotFile, ATOMIC_MOVE);
+
+            for (final var previousSnapshotFile : snapshotFiles()) {
+                if (!previousSnapshotFile.equals(snapshotFile)) {
+                    Files.delete(previousSnapshotFile);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data snapshot cannot be written to %s".formatted(directory), e);
+        }
+
+        journal.deleteSegmentsBefore(journalOffset);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static void transfer(SnapshotStagingChannel staging,
+                                 FileChannel channel) {
+        try {
+            staging.transferTo(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data snapshot cannot be written", e);
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            LOGGER.error("Trading data snapshot failed", e);
+        }
+    }
+
+    private List<Path> snapshotFiles() {
+        if (Files.notExists(directory)) {
+            return List.of();
+        }
+
+        try (final var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data snapshots cannot be listed in %s".formatted(directory), e);
+        }
+    }
+}
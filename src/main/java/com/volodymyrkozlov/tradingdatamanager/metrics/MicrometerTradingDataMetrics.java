@@ -0,0 +1,125 @@
+package com.volodymyrkozlov.tradingdatamanager.metrics;
+
+import com.volodymyrkozlov.tradingdatamanager.repository.TradingDataEntity;
+import com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Records ingest metrics of every symbol. Meters of a symbol are registered once with its first batch,
+ * then a batch only looks them up and updates them, so recording doesn't allocate.
+ * Fill level and dequeue sizes are gauges, which are read optimistically when metrics are scraped.
+ */
+@Component
+public class MicrometerTradingDataMetrics implements TradingDataMetrics {
+    private final MeterRegistry registry;
+    private final DistributionSummary batchSize;
+    private final Map<String, SymbolMeters> symbolMeters = new ConcurrentHashMap<>();
+
+    public MicrometerTradingDataMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.batchSize = DistributionSummary.builder("trading.batch.size")
+                .description("Prices amount of added batches")
+                .baseUnit("points")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public void registerAvailableSymbols(IntSupplier availableSymbols) {
+        Gauge.builder("trading.symbols.available", availableSymbols, IntSupplier::getAsInt)
+                .description("Amount of symbols which can still be added")
+                .register(registry);
+    }
+
+    @Override
+    public void recordBatch(String symbol,
+                            TradingDataEntity tradingData,
+                            int length,
+                            long lockWaitNanos) {
+        var meters = symbolMeters.get(symbol);
+        if (meters == null) {
+            meters = symbolMeters.computeIfAbsent(symbol, key -> registerSymbolMeters(key, tradingData));
+        }
+
+        batchSize.record(length);
+        meters.ingestedPoints().increment(length);
+        meters.lockWait().record(lockWaitNanos, NANOSECONDS);
+    }
+
+    @Override
+    public void removeSymbol(String symbol) {
+        final var meters = symbolMeters.remove(symbol);
+        if (meters != null) {
+            meters.all().forEach(registry::remove);
+        }
+    }
+
+    private SymbolMeters registerSymbolMeters(String symbol,
+                                              TradingDataEntity tradingData) {
+        final var gauges = new ArrayList<Meter>();
+        gauges.add(Gauge.builder("trading.buffer.fill", tradingData, entity -> entity.read(MicrometerTradingDataMetrics::bufferFill))
+                .description("Filled share of the prices ring buffer")
+                .tag("symbol", symbol)
+                .register(registry));
+
+        for (var window = 0; window < tradingData.maxDeque().windowsAmount(); window++) {
+            final var dequeWindow = window;
+            gauges.add(Gauge.builder("trading.deque.size", tradingData, entity -> entity.read(locked -> locked.maxDeque().size(dequeWindow)))
+                    .description("Entries of the dequeue window of last 1e{k} prices")
+                    .tag("symbol", symbol)
+                    .tag("deque", "max")
+                    .tag("k", String.valueOf(window + 1))
+                    .register(registry));
+            gauges.add(Gauge.builder("trading.deque.size", tradingData, entity -> entity.read(locked -> locked.minDeque().size(dequeWindow)))
+                    .description("Entries of the dequeue window of last 1e{k} prices")
+                    .tag("symbol", symbol)
+                    .tag("deque", "min")
+                    .tag("k", String.valueOf(window + 1))
+                    .register(registry));
+        }
+
+        return new SymbolMeters(
+                Counter.builder("trading.points.ingested")
+                        .description("Prices added to the symbol")
+                        .baseUnit("points")
+                        .tag("symbol", symbol)
+                        .register(registry),
+                Timer.builder("trading.lock.wait")
+                        .description("Time batches waited for the write lock of the symbol")
+                        .tag("symbol", symbol)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                gauges);
+    }
+
+    private static double bufferFill(TradingDataEntity tradingData) {
+        final var tradingPrices = tradingData.tradingPrices();
+        return (double) tradingPrices.size() / tradingPrices.capacity();
+    }
+
+    private record SymbolMeters(Counter ingestedPoints,
+                                Timer lockWait,
+                                List<Meter> gauges) {
+
+        private List<Meter> all() {
+            final var meters = new ArrayList<Meter>(gauges);
+            meters.add(ingestedPoints);
+            meters.add(lockWait);
+            return meters;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+public class BatchQueueFullException extends RuntimeException {
+
+    public BatchQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,257 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.util.Arrays;
+
+/**
+ * Min, max, mean and sum of squared deviations of blocks of {@value #BLOCK_SIZE} trading prices kept in a segment tree,
+ * so stats of a window of any amount of last prices are calculated in O(block size + log n):
+ * prices of the oldest partial block are read from the ring buffer, full blocks are merged from the tree
+ * and the current block is kept by its own accumulator.
+ * Blocks are kept in a ring of slots which covers the ring buffer, the tree grows by doubling up to the amount of slots.
+ * The slot of the current block is kept by its own cursor, so 64-bit positions are never divided by the amount of slots.
+ */
+public class BlockSegmentTree {
+    private static final int BLOCK_SHIFT = 10;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int INITIAL_LEAVES = 1 << 4;
+
+    private final int blockSlots;
+    private final int maxLeaves;
+    private final Accumulator currentBlock = new Accumulator();
+    private final Accumulator pulledNode = new Accumulator();
+    private int leaves;
+    private int[] counts;
+    private double[] mins;
+    private double[] maxs;
+    private double[] means;
+    private double[] deviations;
+    private long position = 0;
+    private int blockSlot = 0;
+
+    public BlockSegmentTree(int maxCapacity) {
+        this.blockSlots = maxCapacity / BLOCK_SIZE + 2;
+        this.maxLeaves = Integer.highestOneBit(blockSlots - 1) << 1;
+        allocate(Math.min(maxLeaves, INITIAL_LEAVES));
+    }
+
+    public void add(double price) {
+        currentBlock.add(price);
+        position++;
+
+        if ((position & BLOCK_MASK) == 0) {
+            setLeaf(blockSlot, currentBlock);
+            blockSlot = blockSlot + 1 < blockSlots ? blockSlot + 1 : 0;
+            currentBlock.clear();
+        }
+    }
+
+    /**
+     * Returns stats of the last prices of the window, or of all kept prices if there are fewer of them.
+     * The trading prices must be the ones added to the tree.
+     */
+    public WindowStats stats(DoubleRingBuffer tradingPrices,
+                             int window) {
+        final var elements = Math.min(window, tradingPrices.size());
+        if (elements < 1) {
+            throw new IllegalArgumentException("Blocks for window %s don't contain any data".formatted(window));
+        }
+
+        final var end = position;
+        final var start = end - elements;
+        final var currentBlockStart = end & ~BLOCK_MASK;
+        final var result = new Accumulator();
+
+        if (start >= currentBlockStart) {
+            addPrices(tradingPrices, start, end, result);
+            return result.toStats();
+        }
+
+        final var firstFullBlockStart = (start + BLOCK_MASK) & ~BLOCK_MASK;
+        addPrices(tradingPrices, start, firstFullBlockStart, result);
+        mergeBlocks((int) ((currentBlockStart - firstFullBlockStart) >>> BLOCK_SHIFT), result);
+        result.merge(currentBlock.count, currentBlock.min, currentBlock.max, currentBlock.mean, currentBlock.deviations);
+        return result.toStats();
+    }
+
+    /**
+     * Drops all blocks, a grown tree is released, so a reused tree starts small again.
+     */
+    public void clear() {
+        position = 0;
+        blockSlot = 0;
+        currentBlock.clear();
+        if (leaves > INITIAL_LEAVES) {
+            allocate(Math.min(maxLeaves, INITIAL_LEAVES));
+        } else {
+            allocate(leaves);
+        }
+    }
+
+    /**
+     * Replaces blocks with blocks of the kept trading prices, the oldest block may cover only a part of its prices,
+     * it's never merged as a full block since the rest of its prices is no longer kept.
+     */
+    void rebuild(DoubleRingBuffer tradingPrices) {
+        clear();
+        final var end = tradingPrices.currentIndex() + 1;
+        position = end - tradingPrices.size();
+        for (var index = position; index < end; index++) {
+            add(tradingPrices.getByIndex(index));
+        }
+    }
+
+    /**
+     * Merges the full blocks which precede the current block.
+     */
+    private void mergeBlocks(int blocks,
+                             Accumulator result) {
+        final var fromSlot = blockSlot - blocks;
+
+        if (fromSlot >= 0) {
+            mergeSlots(fromSlot, blockSlot, result);
+        } else {
+            mergeSlots(fromSlot + blockSlots, blockSlots, result);
+            mergeSlots(0, blockSlot, result);
+        }
+    }
+
+    private void mergeSlots(int fromSlot,
+                            int toSlot,
+                            Accumulator result) {
+        for (int left = fromSlot + leaves, right = toSlot + leaves; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                mergeNode(left++, result);
+            }
+            if ((right & 1) == 1) {
+                mergeNode(--right, result);
+            }
+        }
+    }
+
+    private void mergeNode(int node,
+                           Accumulator result) {
+        result.merge(counts[node], mins[node], maxs[node], means[node], deviations[node]);
+    }
+
+    private void setLeaf(int slot,
+                         Accumulator block) {
+        while (slot >= leaves) {
+            grow();
+        }
+
+        var node = leaves + slot;
+        counts[node] = block.count;
+        mins[node] = block.min;
+        maxs[node] = block.max;
+        means[node] = block.mean;
+        deviations[node] = block.deviations;
+
+        for (node >>= 1; node > 0; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    private void pull(int node) {
+        pulledNode.clear();
+        mergeNode(2 * node, pulledNode);
+        mergeNode(2 * node + 1, pulledNode);
+
+        counts[node] = pulledNode.count;
+        mins[node] = pulledNode.min;
+        maxs[node] = pulledNode.max;
+        means[node] = pulledNode.mean;
+        deviations[node] = pulledNode.deviations;
+    }
+
+    private void grow() {
+        final var grownLeaves = Math.min(maxLeaves, 2 * leaves);
+        final var previousLeaves = leaves;
+        final var previousCounts = counts;
+        final var previousMins = mins;
+        final var previousMaxs = maxs;
+        final var previousMeans = means;
+        final var previousDeviations = deviations;
+
+        allocate(grownLeaves);
+        System.arraycopy(previousCounts, previousLeaves, counts, leaves, previousLeaves);
+        System.arraycopy(previousMins, previousLeaves, mins, leaves, previousLeaves);
+        System.arraycopy(previousMaxs, previousLeaves, maxs, leaves, previousLeaves);
+        System.arraycopy(previousMeans, previousLeaves, means, leaves, previousLeaves);
+        System.arraycopy(previousDeviations, previousLeaves, deviations, leaves, previousLeaves);
+
+        for (var node = leaves - 1; node > 0; node--) {
+            pull(node);
+        }
+    }
+
+    private void allocate(int leaves) {
+        this.leaves = leaves;
+        this.counts = new int[2 * leaves];
+        this.mins = new double[2 * leaves];
+        this.maxs = new double[2 * leaves];
+        this.means = new double[2 * leaves];
+        this.deviations = new double[2 * leaves];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+    }
+
+    private static void addPrices(DoubleRingBuffer tradingPrices,
+                                  long from,
+                                  long to,
+                                  Accumulator result) {
+        for (var index = from; index < to; index++) {
+            result.add(tradingPrices.getByIndex(index));
+        }
+    }
+
+    /**
+     * Welford accumulator of prices, accumulators are merged by the parallel variance formula of Chan et al.
+     */
+    private static final class Accumulator {
+        private int count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double mean;
+        private double deviations;
+
+        void add(double price) {
+            count++;
+            final var delta = price - mean;
+            mean += delta / count;
+            deviations += delta * (price - mean);
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+
+        void merge(int otherCount,
+                   double otherMin,
+                   double otherMax,
+                   double otherMean,
+                   double otherDeviations) {
+            if (otherCount == 0) {
+                return;
+            }
+
+            final var total = count + otherCount;
+            final var delta = otherMean - mean;
+            mean += delta * otherCount / total;
+            deviations += otherDeviations + delta * delta * ((double) count * otherCount / total);
+            count = total;
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+
+        void clear() {
+            count = 0;
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            mean = 0.0;
+            deviations = 0.0;
+        }
+
+        WindowStats toStats() {
+            return new WindowStats(count, min, max, mean, Math.max(0.0, deviations));
+        }
+    }
+}
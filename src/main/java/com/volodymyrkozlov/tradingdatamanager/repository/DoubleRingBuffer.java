@@ -1,32 +1,147 @@
 package com.volodymyrkozlov.tradingdatamanager.repository;
 
+import java.util.function.IntFunction;
+
+/**
+ * Ring buffer of trading prices. A buffer with a storage allocator starts small and grows by doubling up to its max
+ * capacity as prices arrive, so symbols which never fill the widest window don't pay for it.
+ * The buffer grows only before it wraps, so the slot of a price is still its index while it grows.
+ * Indices are a monotonic 64-bit sequence, the slot of an index is resolved against the slot of the next price
+ * without a division.
+ */
 public class DoubleRingBuffer {
-    private final double[] buffer;
-    private final int capacity;
-    private int position = 0;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final IntFunction<DoubleStorage> allocator;
+    private final int maxCapacity;
+    private DoubleStorage buffer;
+    private int capacity;
+    private long position = 0;
+    private int positionSlot = 0;
 
     public DoubleRingBuffer(int capacity) {
-        this.buffer = new double[capacity];
-        this.capacity = capacity;
+        this(capacity, HeapDoubleStorage::new);
+    }
+
+    public DoubleRingBuffer(DoubleStorage buffer) {
+        this.allocator = null;
+        this.maxCapacity = buffer.capacity();
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    public DoubleRingBuffer(int maxCapacity,
+                            IntFunction<DoubleStorage> allocator) {
+        this.allocator = allocator;
+        this.maxCapacity = maxCapacity;
+        this.buffer = allocator.apply(Math.min(maxCapacity, INITIAL_CAPACITY));
+        this.capacity = buffer.capacity();
     }
 
     public void add(double value) {
-        buffer[position % capacity] = value;
+        if (position == capacity && capacity < maxCapacity) {
+            grow((int) Math.min(maxCapacity, 2L * capacity));
+        }
+
+        buffer.set(positionSlot, value);
         position++;
+        positionSlot = positionSlot + 1 < capacity ? positionSlot + 1 : 0;
     }
 
-    public double getByIndex(int index) {
+    public double getByIndex(long index) {
         if (index < position - capacity || index >= position) {
             throw new IndexOutOfBoundsException("Index out of buffer range");
         }
-        return buffer[(index % capacity)];
+        return buffer.get(slot(index));
     }
 
-    public int currentIndex() {
+    /**
+     * Drops all values, a grown storage is released, so a reused buffer starts small again.
+     */
+    public void clear() {
+        if (allocator != null && capacity > INITIAL_CAPACITY) {
+            buffer = allocator.apply(Math.min(maxCapacity, INITIAL_CAPACITY));
+            capacity = buffer.capacity();
+        }
+        position = 0;
+        positionSlot = 0;
+    }
+
+    public double round(double value) {
+        return buffer.round(value);
+    }
+
+    public long currentIndex() {
         return position - 1;
     }
 
+    /**
+     * Returns the amount of values the buffer keeps once it's grown.
+     */
+    public int capacity() {
+        return maxCapacity;
+    }
+
+    public int allocatedCapacity() {
+        return capacity;
+    }
+
     public int size() {
-        return Math.min(position, capacity);
+        return (int) Math.min(position, capacity);
+    }
+
+    /**
+     * Writes max capacity, position and buffered values from the oldest one.
+     */
+    void writeSnapshot(SnapshotChannel channel) {
+        channel.writeInt(maxCapacity);
+        channel.writeLong(position);
+
+        final var firstSlot = size() == 0 ? 0 : slot(position - size());
+        final var headValues = Math.min(size(), capacity - firstSlot);
+        channel.writeDoubles(buffer, firstSlot, headValues);
+        channel.writeDoubles(buffer, 0, size() - headValues);
+    }
+
+    void readSnapshot(SnapshotChannel channel) {
+        final var snapshotCapacity = channel.readInt();
+        if (snapshotCapacity != maxCapacity) {
+            throw new IllegalStateException("Snapshot buffer capacity %s doesn't match %s".formatted(snapshotCapacity, maxCapacity));
+        }
+        position = channel.readLong();
+
+        var snapshotBufferCapacity = capacity;
+        while (snapshotBufferCapacity < Math.min(position, maxCapacity)) {
+            snapshotBufferCapacity = (int) Math.min(maxCapacity, 2L * snapshotBufferCapacity);
+        }
+        if (snapshotBufferCapacity != capacity) {
+            buffer = allocator.apply(snapshotBufferCapacity);
+            capacity = buffer.capacity();
+        }
+        positionSlot = (int) (position % capacity);
+
+        final var firstSlot = size() == 0 ? 0 : slot(position - size());
+        final var headValues = Math.min(size(), capacity - firstSlot);
+        channel.readDoubles(buffer, firstSlot, headValues);
+        channel.readDoubles(buffer, 0, size() - headValues);
+    }
+
+    /**
+     * Slot of a buffered index, which is at most a capacity behind the position.
+     */
+    private int slot(long index) {
+        final var slot = positionSlot - (int) (position - index);
+        return slot >= 0 ? slot : slot + capacity;
+    }
+
+    private void grow(int grownCapacity) {
+        final var grownBuffer = allocator.apply(grownCapacity);
+        for (var i = 0; i < position; i++) {
+            grownBuffer.set(i, buffer.get(i));
+        }
+
+        buffer = grownBuffer;
+        capacity = grownBuffer.capacity();
+        positionSlot = (int) position;
     }
 }
@@ -0,0 +1,18 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+public interface DoubleStorage {
+
+    double get(int index);
+
+    void set(int index,
+             double value);
+
+    /**
+     * Returns the value as it's read back once stored, or throws an exception if the value cannot be stored.
+     */
+    default double round(double value) {
+        return value;
+    }
+
+    int capacity();
+}
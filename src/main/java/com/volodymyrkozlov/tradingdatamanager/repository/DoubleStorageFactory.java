@@ -0,0 +1,86 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Allocates storages of ring buffers according to the configured storage type:
+ * {@code heap} keeps values in a {@code double[]}, {@code off-heap} in native memory
+ * and {@code mapped} in a memory-mapped file of the storage directory which is paged by the OS.
+ * Native and mapped memory is released once the storage becomes unreachable.
+ * With {@code float} or {@code scaled-int} price encoding values take 4 bytes instead of 8, either as {@code float}
+ * or as {@code int} ticks of {@code 10^-price-scale}.
+ */
+@Component
+public class DoubleStorageFactory {
+    private final StorageType storageType;
+    private final Path storageDirectory;
+    private final PriceEncoding priceEncoding;
+    private final int priceScale;
+
+    public DoubleStorageFactory(@Value("${storage-type}") StorageType storageType,
+                                @Value("${storage-directory}") String storageDirectory,
+                                @Value("${price-encoding}") PriceEncoding priceEncoding,
+                                @Value("${price-scale}") int priceScale) {
+        this.storageType = storageType;
+        this.storageDirectory = Path.of(storageDirectory);
+        this.priceEncoding = priceEncoding;
+        this.priceScale = priceScale;
+    }
+
+    public static DoubleStorageFactory heapStorageFactory() {
+        return new DoubleStorageFactory(StorageType.HEAP, "", PriceEncoding.DOUBLE, 0);
+    }
+
+    public DoubleStorage allocate(int capacity) {
+        if (priceEncoding == PriceEncoding.DOUBLE && storageType == StorageType.HEAP) {
+            return new HeapDoubleStorage(capacity);
+        }
+
+        final var segment = switch (storageType) {
+            case HEAP -> heapSegment(capacity);
+            case OFF_HEAP -> Arena.ofAuto().allocate(byteSize(capacity), priceEncoding.bytes());
+            case MAPPED -> map(capacity);
+        };
+        return switch (priceEncoding) {
+            case DOUBLE -> new SegmentDoubleStorage(segment);
+            case FLOAT -> new SegmentFloatStorage(segment);
+            case SCALED_INT -> new SegmentScaledIntStorage(segment, priceScale);
+        };
+    }
+
+    private MemorySegment heapSegment(int capacity) {
+        return priceEncoding == PriceEncoding.FLOAT
+                ? MemorySegment.ofArray(new float[capacity])
+                : MemorySegment.ofArray(new int[capacity]);
+    }
+
+    private MemorySegment map(int capacity) {
+        try {
+            Files.createDirectories(storageDirectory);
+            final var file = Files.createTempFile(storageDirectory, "trading-data-", ".bin");
+
+            try (final var channel = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize(capacity), Arena.ofAuto());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trading data storage cannot be mapped in %s".formatted(storageDirectory), e);
+        }
+    }
+
+    private long byteSize(int capacity) {
+        return (long) capacity * priceEncoding.bytes();
+    }
+}
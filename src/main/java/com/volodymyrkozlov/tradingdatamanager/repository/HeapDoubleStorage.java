@@ -0,0 +1,29 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+class HeapDoubleStorage implements DoubleStorage {
+    private final double[] values;
+
+    HeapDoubleStorage(int capacity) {
+        this.values = new double[capacity];
+    }
+
+    @Override
+    public double get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public void set(int index,
+                    double value) {
+        values[index] = value;
+    }
+
+    @Override
+    public int capacity() {
+        return values.length;
+    }
+
+    double[] values() {
+        return values;
+    }
+}
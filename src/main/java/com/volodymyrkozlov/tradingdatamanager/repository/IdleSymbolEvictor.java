@@ -0,0 +1,65 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Periodically removes symbols which weren't written or read during the idle timeout, so their entities are reused
+ * by new symbols. Symbols are checked every tenth of the timeout, eviction is disabled by a zero timeout.
+ */
+@Component
+public class IdleSymbolEvictor implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdleSymbolEvictor.class);
+    private static final long MIN_CHECK_INTERVAL_MILLIS = 100;
+
+    private final Duration idleTimeout;
+    private final SymbolTradingDataRepository repository;
+    private ScheduledExecutorService scheduler;
+
+    public IdleSymbolEvictor(@Value("${symbol-idle-timeout}") Duration idleTimeout,
+                             SymbolTradingDataRepository repository) {
+        this.idleTimeout = idleTimeout;
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (idleTimeout.isZero()) {
+            return;
+        }
+
+        final var checkInterval = Math.max(idleTimeout.toMillis() / 10, MIN_CHECK_INTERVAL_MILLIS);
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("idle-symbol-evictor")
+                .daemon()
+                .factory());
+        scheduler.scheduleWithFixedDelay(this::evictIdleSymbols, checkInterval, checkInterval, MILLISECONDS);
+    }
+
+    public void evictIdleSymbols() {
+        try {
+            final var removedSymbols = repository.removeIdleSymbolsTradingData(idleTimeout);
+            if (!removedSymbols.isEmpty()) {
+                LOGGER.info("Idle symbols {} are removed", removedSymbols);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Idle symbols cannot be removed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -1,69 +1,244 @@
 package com.volodymyrkozlov.tradingdatamanager.repository;
 
 import com.volodymyrkozlov.tradingdatamanager.utils.MathUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayDeque;
-import java.util.Collection;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.maxDeque;
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.minDeque;
 import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataEntity.tradingDataEntityBuilder;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataWriter.NO_SEQUENCE;
 import static com.volodymyrkozlov.tradingdatamanager.utils.MathUtils.powerOfTen;
-import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
 import static java.util.stream.IntStream.rangeClosed;
 
+/**
+ * Entities of symbols are allocated on demand up to the symbols limit, removed symbols return their cleared entities
+ * to the pool, so they are reused by new symbols without allocation.
+ * Restored symbols may exceed the limit while the journal is replayed, since the journal may add a symbol which was
+ * removed later while its entity was taken by a symbol of the snapshot. Entities above the limit are dropped once released.
+ * Entities are pooled by the max K value of their symbol. If the limit is reached and only entities of other max K values
+ * are pooled, one of them is dropped to allocate an entity of the symbol.
+ * Batches are applied by the single writer of the entity on a virtual thread, the symbol map is locked only
+ * to allocate or release an entity, so neither symbols nor batches of a symbol contend on locks while a batch is applied.
+ * Batches are copied into pre-allocated slots of the writer, so steady ingest doesn't allocate per batch.
+ */
 @Repository
-public class InMemorySymbolTradingDataRepository implements SymbolTradingDataRepository {
+public class InMemorySymbolTradingDataRepository implements SymbolTradingDataRepository, AutoCloseable {
     private final Map<String, TradingDataEntity> symbolTradingPriceData = new ConcurrentHashMap<>();
-    private final Deque<TradingDataEntity> tradingDataPool;
+    private final Map<Integer, Deque<TradingDataEntity>> tradingDataPools = new ConcurrentHashMap<>();
+    private final AtomicInteger allocatedTradingData = new AtomicInteger();
+    private final List<Consumer<String>> appliedListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService writerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("trading-data-writer-", 0)
+            .factory());
     private final int maxSymbolsAllowedAmount;
-    private final int maxKValue;
     private final int maxBatchSize;
-    private final int maxSymbolTradingDataCapacity;
+    private final int writerQueueSize;
+    private final WaitStrategy writerWaitStrategy;
+    private final BiConsumer<TradingDataEntity, TradingDataWriter.Slot> slotWriter = (entity, slot) ->
+            updateSymbolTradingPriceData(slot.symbol(), slot.prices(), slot.timestamps(), 0, slot.length(), slot.journaled(), System.nanoTime() - slot.applyingNanos(), entity);
+    private final SymbolKValues symbolKValues;
+    private final DoubleStorageFactory storageFactory;
+    private final TradingDataJournal journal;
+    private final TradingDataMetrics metrics;
 
+    public InMemorySymbolTradingDataRepository(int maxSymbolsAllowedAmount,
+                                               int maxKValue,
+                                               int maxBatchSize,
+                                               DoubleStorageFactory storageFactory,
+                                               TradingDataJournal journal,
+                                               TradingDataMetrics metrics) {
+        this(maxSymbolsAllowedAmount, SymbolKValues.globalKValue(maxKValue), maxBatchSize, storageFactory, journal, metrics);
+    }
+
+    public InMemorySymbolTradingDataRepository(int maxSymbolsAllowedAmount,
+                                               SymbolKValues symbolKValues,
+                                               int maxBatchSize,
+                                               DoubleStorageFactory storageFactory,
+                                               TradingDataJournal journal,
+                                               TradingDataMetrics metrics) {
+        this(maxSymbolsAllowedAmount, symbolKValues, maxBatchSize, TradingDataWriter.DEFAULT_QUEUE_SIZE, WaitStrategy.PARK, storageFactory, journal, metrics);
+    }
+
+    @Autowired
     public InMemorySymbolTradingDataRepository(@Value("${max-symbols-allowed-amount}") int maxSymbolsAllowedAmount,
-                                               @Value("${max-k-value}") int maxKValue,
-                                               @Value("${max-batch-size}") int maxBatchSize) {
-        this.maxKValue = maxKValue;
+                                               SymbolKValues symbolKValues,
+                                               @Value("${max-batch-size}") int maxBatchSize,
+                                               @Value("${symbol-writer-queue-size}") int writerQueueSize,
+                                               @Value("${symbol-writer-wait-strategy}") WaitStrategy writerWaitStrategy,
+                                               DoubleStorageFactory storageFactory,
+                                               TradingDataJournal journal,
+                                               TradingDataMetrics metrics) {
+        this.storageFactory = storageFactory;
+        this.journal = journal;
+        this.metrics = metrics;
         this.maxBatchSize = maxBatchSize;
+        this.writerQueueSize = writerQueueSize;
+        this.writerWaitStrategy = writerWaitStrategy;
         this.maxSymbolsAllowedAmount = maxSymbolsAllowedAmount;
-        this.maxSymbolTradingDataCapacity = powerOfTen(maxKValue);
-        this.tradingDataPool = rangeClosed(1, maxSymbolsAllowedAmount)
-                .mapToObj(__ -> initTradingData())
-                .collect(toCollection(ConcurrentLinkedDeque::new));
+        this.symbolKValues = symbolKValues;
+        metrics.registerAvailableSymbols(() -> Math.max(0, maxSymbolsAllowedAmount - symbolTradingPriceData.size()));
     }
 
     @Override
     public void addSymbolTradingData(String symbol,
                                      List<Double> prices) {
-        validateMaxBatchSize(prices);
+        validateMaxBatchSize(prices.size());
 
-        symbolTradingPriceData.compute(symbol, (key, tradingDataEntity) -> {
-            if (tradingDataEntity != null) {
-                synchronized (tradingDataEntity) {
-                    updateSymbolTradingPriceData(prices, tradingDataEntity);
-                }
-                return tradingDataEntity;
-            }
+        final var values = new double[prices.size()];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = prices.get(i);
+        }
 
-            final var emptyTradingData = tradingDataPool.poll();
-            if (emptyTradingData == null) {
-                throw new IllegalStateException("Trading data symbol limit of %s is reached".formatted(maxSymbolsAllowedAmount));
-            }
+        addSymbolTradingData(symbol, values, values.length);
+    }
+
+    @Override
+    public void addSymbolTradingData(String symbol,
+                                     double[] prices,
+                                     int length) {
+        addSymbolTradingData(symbol, prices, null, length);
+    }
+
+    @Override
+    public void addSymbolTradingData(String symbol,
+                                     double[] prices,
+                                     long[] timestamps,
+                                     int length) {
+        validateMaxBatchSize(length);
+        applySymbolTradingData(symbol, prices, timestamps, 0, length);
+        journal.sync();
+    }
+
+    /**
+     * Queued batches are journaled once they're applied, the journal syncs them without a waiting caller within a bounded delay.
+     * Prices and timestamps of the batch are validated before it's queued, so only a batch which doesn't follow
+     * the symbol data it's applied to is rejected later. A batch queued before its symbol was removed is dropped.
+     */
+    @Override
+    public long queueSymbolTradingData(String symbol,
+                                       double[] prices,
+                                       long[] timestamps,
+                                       int length) {
+        validateMaxBatchSize(length);
+
+        final var tradingDataEntity = holdTradingData(symbol, false);
+        try {
+            validateQueuedBatch(tradingDataEntity, prices, timestamps, length);
+        } catch (RuntimeException e) {
+            releaseEmptyTradingData(symbol, tradingDataEntity);
+            throw e;
+        }
+        final var sequence = tradingDataEntity.writer().tryQueue(tradingDataEntity, symbol, prices, timestamps, length);
+        if (sequence == NO_SEQUENCE) {
+            throw new BatchQueueFullException("Batch queue of %s is full".formatted(symbol));
+        }
+        return sequence;
+    }
 
-            synchronized (emptyTradingData) {
-                updateSymbolTradingPriceData(prices, emptyTradingData);
+    /**
+     * Batches of every symbol are applied one by one on their own virtual thread, so symbols are applied in parallel,
+     * while batches of the same symbol are applied in the request order. All batches are made durable by a single journal sync.
+     * If a symbol fails, other symbols are still applied and the first failure is thrown.
+     */
+    @Override
+    public void addSymbolsTradingData(List<String> symbols,
+                                      double[] prices,
+                                      int[] offsets) {
+        for (var batch = 0; batch < symbols.size(); batch++) {
+            validateMaxBatchSize(offsets[batch + 1] - offsets[batch]);
+        }
+
+        final var symbolWrites = range(0, symbols.size())
+                .boxed()
+                .collect(groupingBy(symbols::get, LinkedHashMap::new, toList()))
+                .entrySet()
+                .stream()
+                .map(symbolBatches -> CompletableFuture.runAsync(() -> applySymbolBatches(symbolBatches.getKey(), symbolBatches.getValue(), prices, offsets), writerExecutor))
+                .toList();
+
+        RuntimeException failure = null;
+        for (final var symbolWrite : symbolWrites) {
+            try {
+                await(symbolWrite);
+            } catch (RuntimeException e) {
+                failure = failure == null ? e : failure;
             }
+        }
 
-            return emptyTradingData;
-        });
+        journal.sync();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void restoreSymbolTradingData(String symbol,
+                                         double[] prices,
+                                         long[] timestamps,
+                                         int length) {
+        validateMaxBatchSize(length);
+        applySymbolTradingData(symbol, entity -> updateSymbolTradingPriceData(symbol, prices, timestamps, 0, length, false, 0, entity), true);
+    }
+
+    @Override
+    public void restoreSymbolTradingData(String symbol,
+                                         Consumer<TradingDataEntity> restorer) {
+        applySymbolTradingData(symbol, restorer, true);
+    }
+
+    @Override
+    public void removeSymbolTradingData(String symbol) {
+        getTradingData(symbol);
+        symbolTradingPriceData.computeIfPresent(symbol, (key, tradingDataEntity) -> releaseTradingData(key, tradingDataEntity, true));
+        journal.sync();
+    }
+
+    @Override
+    public List<String> removeIdleSymbolsTradingData(Duration idleTimeout) {
+        final var nowNanos = System.nanoTime();
+        final var removedSymbols = new ArrayList<String>();
+
+        for (final var symbol : symbolTradingPriceData.keySet()) {
+            symbolTradingPriceData.computeIfPresent(symbol, (key, tradingDataEntity) -> {
+                if (tradingDataEntity.lease().idleNanos(nowNanos) < idleTimeout.toNanos()) {
+                    return tradingDataEntity;
+                }
+
+                removedSymbols.add(key);
+                return releaseTradingData(key, tradingDataEntity, true);
+            });
+        }
+
+        journal.sync();
+        return removedSymbols;
+    }
+
+    @Override
+    public void restoreSymbolRemoval(String symbol) {
+        symbolTradingPriceData.computeIfPresent(symbol, (key, tradingDataEntity) -> releaseTradingData(key, tradingDataEntity, false));
     }
 
     @Override
@@ -72,96 +247,293 @@ public class InMemorySymbolTradingDataRepository implements SymbolTradingDataRep
                 .orElseThrow(() -> new EntityNotFoundException("Trading price data is not found for %s".formatted(symbol)));
     }
 
-    private void updateSymbolTradingPriceData(List<Double> prices,
+    @Override
+    public void forEachTradingData(BiConsumer<String, TradingDataEntity> consumer) {
+        symbolTradingPriceData.forEach(consumer);
+    }
+
+    @Override
+    public void addAppliedListener(Consumer<String> listener) {
+        appliedListeners.add(listener);
+    }
+
+    /**
+     * Stops writers once queued batches are applied.
+     */
+    @Override
+    public void close() {
+        writerExecutor.close();
+    }
+
+    private void applySymbolBatches(String symbol,
+                                    List<Integer> batches,
+                                    double[] prices,
+                                    int[] offsets) {
+        for (final var batch : batches) {
+            applySymbolTradingData(symbol, prices, null, offsets[batch], offsets[batch + 1] - offsets[batch]);
+        }
+    }
+
+    /**
+     * Applies the batch by the writer of the symbol entity and waits for it, the batch is applied again
+     * if the entity was released by the symbol while the batch was waiting in the writer.
+     */
+    private void applySymbolTradingData(String symbol,
+                                        double[] prices,
+                                        long[] timestamps,
+                                        int offset,
+                                        int length) {
+        boolean applied;
+        do {
+            final var tradingDataEntity = holdTradingData(symbol, false);
+            applied = tradingDataEntity.writer().write(tradingDataEntity, symbol, prices, timestamps, offset, length, true);
+        } while (!applied);
+    }
+
+    /**
+     * Applies the entity writer under the write lock of the entity, bypassing the writer of the entity, so it doesn't take
+     * a sequence of the symbol. It's used to restore symbols on startup, before batches are added.
+     */
+    private void applySymbolTradingData(String symbol,
+                                        Consumer<TradingDataEntity> writer,
+                                        boolean restored) {
+        boolean applied;
+        do {
+            applied = holdTradingData(symbol, restored).write(symbol, writer);
+        } while (!applied);
+    }
+
+    /**
+     * Applies a slot of the writer, a symbol created for a failed slot is released by the writer,
+     * so no later slot of the symbol is applied in between. Applied listeners are called once a batch is applied.
+     */
+    private boolean applySlot(TradingDataWriter.Slot slot) {
+        final var tradingDataEntity = slot.entity();
+        try {
+            final var applied = tradingDataEntity.write(slot.symbol(), slot, slotWriter);
+            if (applied && slot.queued()) {
+                journal.syncAsync();
+            }
+            if (applied) {
+                appliedListeners.forEach(listener -> listener.accept(slot.symbol()));
+            }
+            return applied;
+        } catch (RuntimeException e) {
+            releaseEmptyTradingData(slot.symbol(), tradingDataEntity);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the entity held for a rejected batch if no batch of the symbol was applied to it,
+     * batches of the symbol queued to the released entity are rejected by its writer.
+     */
+    private void releaseEmptyTradingData(String symbol,
+                                         TradingDataEntity tradingDataEntity) {
+        symbolTradingPriceData.computeIfPresent(symbol, (key, heldTradingData) -> {
+            if (heldTradingData != tradingDataEntity || heldTradingData.tradingPrices().currentIndex() >= 0) {
+                return heldTradingData;
+            }
+            heldTradingData.writer().abandon();
+            return releaseTradingData(key, heldTradingData, false);
+        });
+    }
+
+    private TradingDataEntity holdTradingData(String symbol,
+                                              boolean restored) {
+        final var tradingDataEntity = symbolTradingPriceData.get(symbol);
+        if (tradingDataEntity != null) {
+            return tradingDataEntity;
+        }
+
+        return symbolTradingPriceData.computeIfAbsent(symbol, key -> {
+            final var emptyTradingData = acquireTradingData(symbolKValues.maxKValue(key), restored);
+            emptyTradingData.write(entity -> {
+                entity.lease().acquire(key);
+                entity.writer().restart();
+            });
+            return emptyTradingData;
+        });
+    }
+
+    private TradingDataEntity acquireTradingData(int maxKValue,
+                                                 boolean restored) {
+        final var pooledTradingData = tradingDataPool(maxKValue).poll();
+        if (pooledTradingData != null) {
+            return pooledTradingData;
+        }
+
+        final var allocated = allocatedTradingData.getAndUpdate(amount -> amount < maxSymbolsAllowedAmount || restored ? amount + 1 : amount);
+        if (allocated >= maxSymbolsAllowedAmount && !restored && pollAnyTradingData() == null) {
+            throw new IllegalStateException("Trading data symbol limit of %s is reached".formatted(maxSymbolsAllowedAmount));
+        }
+
+        return initTradingData(maxKValue);
+    }
+
+    private TradingDataEntity pollAnyTradingData() {
+        for (final var pool : tradingDataPools.values()) {
+            final var pooledTradingData = pool.poll();
+            if (pooledTradingData != null) {
+                return pooledTradingData;
+            }
+        }
+        return null;
+    }
+
+    private Deque<TradingDataEntity> tradingDataPool(int maxKValue) {
+        return tradingDataPools.computeIfAbsent(maxKValue, key -> new ConcurrentLinkedDeque<>());
+    }
+
+    /**
+     * Clears the entity and returns it to the pool, it's called within the map computation of the symbol,
+     * so the removal is journaled before any later batch of the symbol.
+     *
+     * @return {@code null}, so the symbol is removed from the map
+     */
+    private TradingDataEntity releaseTradingData(String symbol,
+                                                 TradingDataEntity tradingDataEntity,
+                                                 boolean journaled) {
+        tradingDataEntity.write(entity -> {
+            if (journaled) {
+                journal.remove(symbol);
+            }
+            entity.clear();
+            entity.lease().release();
+        });
+        metrics.removeSymbol(symbol);
+
+        if (allocatedTradingData.get() > maxSymbolsAllowedAmount) {
+            allocatedTradingData.decrementAndGet();
+        } else {
+            tradingDataPool(tradingDataEntity.moments().windowsAmount()).push(tradingDataEntity);
+        }
+        return null;
+    }
+
+    private void updateSymbolTradingPriceData(String symbol,
+                                              double[] prices,
+                                              long[] timestamps,
+                                              int offset,
+                                              int length,
+                                              boolean journaled,
+                                              long lockWaitNanos,
                                               TradingDataEntity tradingData) {
         final var tradingPrices = tradingData.tradingPrices();
-        final var prefixSums = tradingData.tradingPricesPrefixSums();
-        final var prefixSquares = tradingData.tradingPricesPrefixSquares();
+        for (var i = offset; i < offset + length; i++) {
+            // rejects the whole batch before it's journaled if a price cannot be stored
+            tradingPrices.round(prices[i]);
+        }
+        validateTimestamps(symbol, tradingData, timestamps, offset, length);
 
-        final var sum = prefixSums.size() > 0 ? prefixSums.getByIndex(prefixSums.currentIndex()) : 0.0;
-        final var sumSq = prefixSums.size() > 0 ? prefixSquares.getByIndex(prefixSquares.currentIndex()) : 0.0;
+        if (journaled) {
+            metrics.recordBatch(symbol, tradingData, length, lockWaitNanos);
+            journal.append(symbol, prices, timestamps, offset, length);
+        }
 
-        addTradingData(prices, tradingPrices, prefixSums, prefixSquares, sum, sumSq);
+        final var moments = tradingData.moments();
+        final var maxDeque = tradingData.maxDeque();
+        final var minDeque = tradingData.minDeque();
+        final var blocks = tradingData.blocks();
 
-        final var lastIndex = tradingPrices.currentIndex();
+        var index = tradingPrices.currentIndex();
 
-        rangeClosed(1, maxKValue).map(MathUtils::powerOfTen)
-                .forEach(k -> {
-                    final var maxDeque = tradingData.maxDequeues().get(k);
-                    final var minDeque = tradingData.minDequeues().get(k);
+        for (var i = offset; i < offset + length; i++) {
+            final var price = tradingPrices.round(prices[i]);
+            index++;
+            moments.add(tradingPrices, price);
+            tradingPrices.add(price);
+            maxDeque.add(index, price);
+            minDeque.add(index, price);
+            blocks.add(price);
+        }
 
-                    for (var i = lastIndex - prices.size() + 1; i <= lastIndex; i++) {
-                        updateDeque(maxDeque, tradingPrices, i, k, true);
-                        updateDeque(minDeque, tradingPrices, i, k, false);
-                    }
-                });
+        if (timestamps != null) {
+            final var tradingTimestamps = tradingData.timestamps();
+            for (var i = offset; i < offset + length; i++) {
+                tradingTimestamps.add(timestamps[i]);
+            }
+        }
     }
 
-    private TradingDataEntity initTradingData() {
-        final var tradingPrices = new DoubleRingBuffer(maxSymbolTradingDataCapacity);
-        final var tradingPricesPrefixSums = new DoubleRingBuffer(maxSymbolTradingDataCapacity);
-        final var tradingPricesPrefixSquares = new DoubleRingBuffer(maxSymbolTradingDataCapacity);
-        final var maxDequeues = new HashMap<Integer, Deque<Integer>>();
-        final var minDequeues = new HashMap<Integer, Deque<Integer>>();
-
-        rangeClosed(1, maxKValue)
-                .map(MathUtils::powerOfTen)
-                .forEach(k -> {
-                    maxDequeues.put(k, new ArrayDeque<>());
-                    minDequeues.put(k, new ArrayDeque<>());
-                });
+    private TradingDataEntity initTradingData(int maxKValue) {
+        final var windows = rangeClosed(1, maxKValue).map(MathUtils::powerOfTen).toArray();
 
         return tradingDataEntityBuilder()
-                .tradingPrices(tradingPrices)
-                .tradingPricesPrefixSums(tradingPricesPrefixSums)
-                .tradingPricesPrefixSquares(tradingPricesPrefixSquares)
-                .maxDequeues(maxDequeues)
-                .minDequeues(minDequeues)
+                .tradingPrices(new DoubleRingBuffer(powerOfTen(maxKValue), storageFactory::allocate))
+                .moments(new MultiWindowMoments(windows))
+                .maxDeque(maxDeque(windows))
+                .minDeque(minDeque(windows))
+                .blocks(new BlockSegmentTree(powerOfTen(maxKValue)))
+                .timestamps(new TimestampRingBuffer(powerOfTen(maxKValue)))
+                .writer(new TradingDataWriter(writerQueueSize, maxBatchSize, writerWaitStrategy, writerExecutor, this::applySlot))
                 .build();
     }
 
-    private static void addTradingData(List<Double> prices,
-                                       DoubleRingBuffer tradingPrices,
-                                       DoubleRingBuffer prefixSums,
-                                       DoubleRingBuffer prefixSquares,
-                                       double sum,
-                                       double sumSq) {
-        for (final var price : prices) {
-            sum += price;
-            sumSq += price * price;
-            tradingPrices.add(price);
-            prefixSums.add(sum);
-            prefixSquares.add(sumSq);
+    /**
+     * Rejects the whole batch before it's journaled if its timestamps don't follow timestamps of the symbol.
+     */
+    private static void validateTimestamps(String symbol,
+                                           TradingDataEntity tradingData,
+                                           long[] timestamps,
+                                           int offset,
+                                           int length) {
+        final var tradingTimestamps = tradingData.timestamps();
+        if (timestamps == null) {
+            if (!tradingTimestamps.isEmpty()) {
+                throw new IllegalArgumentException("Prices of %s must be added with timestamps".formatted(symbol));
+            }
+            return;
         }
-    }
 
-    private static void updateDeque(Deque<Integer> deque,
-                                    DoubleRingBuffer prices,
-                                    int currentIndex,
-                                    int k,
-                                    boolean isMax) {
-        while (!deque.isEmpty() && deque.peekFirst() <= currentIndex - k) {
-            deque.pollFirst();
+        if (tradingTimestamps.isEmpty() && tradingData.tradingPrices().currentIndex() >= 0) {
+            throw new IllegalArgumentException("Prices of %s must be added without timestamps".formatted(symbol));
         }
 
-        final var value = prices.getByIndex(currentIndex);
-        while (!deque.isEmpty()) {
-            final var last = deque.peekLast();
-            final var lastVal = prices.getByIndex(last);
+        var previousTimestamp = tradingTimestamps.isEmpty() ? Long.MIN_VALUE : tradingTimestamps.last();
+        for (var i = offset; i < offset + length; i++) {
+            if (timestamps[i] < previousTimestamp) {
+                throw new IllegalArgumentException("Timestamp %s is earlier than previous %s".formatted(timestamps[i], previousTimestamp));
+            }
+            previousTimestamp = timestamps[i];
+        }
+    }
 
-            if ((isMax && lastVal <= value) || (!isMax && lastVal >= value)) {
-                deque.pollLast();
-            } else {
-                break;
+    /**
+     * Rejects the batch before it's queued if a price cannot be stored or its timestamps go backwards.
+     */
+    private static void validateQueuedBatch(TradingDataEntity tradingData,
+                                            double[] prices,
+                                            long[] timestamps,
+                                            int length) {
+        final var tradingPrices = tradingData.tradingPrices();
+        for (var i = 0; i < length; i++) {
+            tradingPrices.round(prices[i]);
+        }
+
+        if (timestamps != null) {
+            for (var i = 1; i < length; i++) {
+                if (timestamps[i] < timestamps[i - 1]) {
+                    throw new IllegalArgumentException("Timestamp %s is earlier than previous %s".formatted(timestamps[i], timestamps[i - 1]));
+                }
             }
         }
+    }
 
-        deque.addLast(currentIndex);
+    private static <T> T await(CompletableFuture<T> write) {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
-    private void validateMaxBatchSize(Collection<Double> values) {
-        if (values.size() > maxBatchSize) {
-            throw new IllegalArgumentException("Batch size %s is greater than allowed %s".formatted(values.size(), maxBatchSize));
+    private void validateMaxBatchSize(int batchSize) {
+        if (batchSize > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size %s is greater than allowed %s".formatted(batchSize, maxBatchSize));
         }
     }
 }
@@ -0,0 +1,218 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Monotonic deque of trading prices which tracks max or min values of several nested windows at once.
+ * The deque keeps candidates of the widest window, and every narrower window keeps a front pointer to its
+ * first candidate, so a single pass per price maintains all windows and a query is O(1).
+ * Indices and values are stored in primitive ring arrays which grow by doubling up to the widest window size.
+ * Indices are 64-bit, but entries keep only their lower 32 bits: entries are never more than the widest window apart,
+ * so they are compared by the wrapping difference of the lower bits.
+ */
+public class MultiWindowDeque {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final int[] windows;
+    private final long[] fronts;
+    private final boolean max;
+    private final int maxCapacity;
+    private int[] indices;
+    private double[] values;
+    private int headSlot = 0;
+    private long first = 0;
+    private long end = 0;
+    private long lastIndex = -1;
+
+    private MultiWindowDeque(int[] windows,
+                             boolean max) {
+        validateWindows(windows);
+        this.windows = windows.clone();
+        this.fronts = new long[windows.length];
+        this.max = max;
+        this.maxCapacity = windows[windows.length - 1];
+        this.indices = new int[Math.min(maxCapacity, INITIAL_CAPACITY)];
+        this.values = new double[indices.length];
+    }
+
+    public static MultiWindowDeque maxDeque(int... windows) {
+        return new MultiWindowDeque(windows, true);
+    }
+
+    public static MultiWindowDeque minDeque(int... windows) {
+        return new MultiWindowDeque(windows, false);
+    }
+
+    public void add(long index,
+                    double value) {
+        final var widestWindowStart = (int) (index - maxCapacity);
+        while (first < end && indices[headSlot] - widestWindowStart <= 0) {
+            headSlot = headSlot + 1 < indices.length ? headSlot + 1 : 0;
+            first++;
+        }
+
+        while (first < end && !outranks(values[slot(end - 1)], value)) {
+            end--;
+        }
+
+        if (end - first == indices.length) {
+            grow();
+        }
+
+        final var slot = slot(end);
+        indices[slot] = (int) index;
+        values[slot] = value;
+        end++;
+        lastIndex = index;
+
+        for (var window = 0; window < windows.length; window++) {
+            final var windowStart = (int) (index - windows[window]);
+            var front = Math.min(Math.max(fronts[window], first), end - 1);
+            while (indices[slot(front)] - windowStart <= 0) {
+                front++;
+            }
+            fronts[window] = front;
+        }
+    }
+
+    /**
+     * Drops all entries keeping grown arrays.
+     */
+    public void clear() {
+        Arrays.fill(fronts, 0);
+        headSlot = 0;
+        first = 0;
+        end = 0;
+        lastIndex = -1;
+    }
+
+    public double first(int window) {
+        validateNotEmpty();
+        return values[slot(fronts[window])];
+    }
+
+    public long firstIndex(int window) {
+        validateNotEmpty();
+        return index(indices[slot(fronts[window])]);
+    }
+
+    public long[] toArray(int window) {
+        if (isEmpty()) {
+            return new long[0];
+        }
+
+        final var result = new long[(int) (end - fronts[window])];
+        for (var i = 0; i < result.length; i++) {
+            result[i] = index(indices[slot(fronts[window] + i)]);
+        }
+        return result;
+    }
+
+    public int size(int window) {
+        return (int) (end - Math.max(fronts[window], first));
+    }
+
+    public int windowsAmount() {
+        return windows.length;
+    }
+
+    public boolean isEmpty() {
+        return first == end;
+    }
+
+    /**
+     * Writes windows, the last index, front offsets of the windows and entries from the head.
+     */
+    void writeSnapshot(SnapshotChannel channel) {
+        channel.writeInt(windows.length);
+        channel.writeInts(windows, 0, windows.length);
+        channel.writeLong(lastIndex);
+        for (final var front : fronts) {
+            channel.writeInt((int) (front - first));
+        }
+
+        final var size = (int) (end - first);
+        final var headEntries = Math.min(size, indices.length - headSlot);
+        channel.writeInt(size);
+        channel.writeInts(indices, headSlot, headEntries);
+        channel.writeInts(indices, 0, size - headEntries);
+        channel.writeDoubles(values, headSlot, headEntries);
+        channel.writeDoubles(values, 0, size - headEntries);
+    }
+
+    void readSnapshot(SnapshotChannel channel) {
+        final var snapshotWindows = new int[channel.readInt()];
+        channel.readInts(snapshotWindows, 0, snapshotWindows.length);
+        if (!Arrays.equals(snapshotWindows, windows)) {
+            throw new IllegalStateException("Snapshot windows %s don't match %s".formatted(Arrays.toString(snapshotWindows), Arrays.toString(windows)));
+        }
+        lastIndex = channel.readLong();
+        for (var window = 0; window < fronts.length; window++) {
+            fronts[window] = channel.readInt();
+        }
+
+        final var size = channel.readInt();
+        if (size > indices.length) {
+            indices = new int[size];
+            values = new double[size];
+        }
+        channel.readInts(indices, 0, size);
+        channel.readDoubles(values, 0, size);
+        headSlot = 0;
+        first = 0;
+        end = size;
+    }
+
+    private boolean outranks(double candidate,
+                             double value) {
+        return max ? candidate > value : candidate < value;
+    }
+
+    /**
+     * Restores the index of an entry from its lower bits, the entry is at most the widest window before the last index.
+     */
+    private long index(int entryIndex) {
+        return lastIndex - ((int) lastIndex - entryIndex);
+    }
+
+    private int slot(long position) {
+        final var slot = headSlot + (int) (position - first);
+        return slot < indices.length ? slot : slot - indices.length;
+    }
+
+    private void grow() {
+        final var size = (int) (end - first);
+        final var capacity = (int) Math.min(maxCapacity, 2L * indices.length);
+        final var grownIndices = new int[capacity];
+        final var grownValues = new double[capacity];
+
+        for (var i = 0; i < size; i++) {
+            final var slot = slot(first + i);
+            grownIndices[i] = indices[slot];
+            grownValues[i] = values[slot];
+        }
+
+        indices = grownIndices;
+        values = grownValues;
+        headSlot = 0;
+    }
+
+    private void validateNotEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+    }
+
+    static void validateWindows(int[] windows) {
+        if (windows.length == 0 || windows[0] < 1) {
+            throw new IllegalArgumentException("Windows must be positive");
+        }
+
+        for (var i = 1; i < windows.length; i++) {
+            if (windows[i] <= windows[i - 1]) {
+                throw new IllegalArgumentException("Windows must be sorted in ascending order");
+            }
+        }
+    }
+}
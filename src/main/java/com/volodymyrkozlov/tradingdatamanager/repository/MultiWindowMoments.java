@@ -0,0 +1,131 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.util.Arrays;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.validateWindows;
+
+/**
+ * Mean and sum of squared deviations of trading prices of several nested windows, so average and variance queries are O(1).
+ * Every window is kept by a rolling Welford update, which adds a price and removes the price leaving the window,
+ * so accumulated values stay in the scale of the window prices instead of growing with the whole history.
+ * Rounding errors of rolling updates are still accumulated, so every window also keeps a shadow accumulator which only
+ * adds prices: once it has seen a whole window it replaces the rolling one and starts over.
+ * This way a window never carries rounding errors of more than a window length of rolling updates.
+ */
+public class MultiWindowMoments {
+    private final int[] windows;
+    private final int[] counts;
+    private final double[] means;
+    private final double[] deviations;
+    private final int[] shadowCounts;
+    private final double[] shadowMeans;
+    private final double[] shadowDeviations;
+
+    public MultiWindowMoments(int... windows) {
+        validateWindows(windows);
+        this.windows = windows.clone();
+        this.counts = new int[windows.length];
+        this.means = new double[windows.length];
+        this.deviations = new double[windows.length];
+        this.shadowCounts = new int[windows.length];
+        this.shadowMeans = new double[windows.length];
+        this.shadowDeviations = new double[windows.length];
+    }
+
+    /**
+     * Adds a price which is not added to the trading prices yet, the trading prices provide prices leaving the windows,
+     * so they must keep at least the widest window.
+     */
+    public void add(DoubleRingBuffer tradingPrices,
+                    double price) {
+        final var index = tradingPrices.currentIndex() + 1;
+
+        for (var window = 0; window < windows.length; window++) {
+            if (counts[window] < windows[window]) {
+                counts[window]++;
+                final var delta = price - means[window];
+                means[window] += delta / counts[window];
+                deviations[window] += delta * (price - means[window]);
+            } else {
+                final var evicted = tradingPrices.getByIndex(index - windows[window]);
+                final var mean = means[window];
+                means[window] += (price - evicted) / counts[window];
+                deviations[window] += (price - evicted) * (price - means[window] + evicted - mean);
+            }
+
+            shadowCounts[window]++;
+            final var delta = price - shadowMeans[window];
+            shadowMeans[window] += delta / shadowCounts[window];
+            shadowDeviations[window] += delta * (price - shadowMeans[window]);
+
+            if (shadowCounts[window] == windows[window]) {
+                means[window] = shadowMeans[window];
+                deviations[window] = shadowDeviations[window];
+                shadowCounts[window] = 0;
+                shadowMeans[window] = 0.0;
+                shadowDeviations[window] = 0.0;
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(means, 0.0);
+        Arrays.fill(deviations, 0.0);
+        Arrays.fill(shadowCounts, 0);
+        Arrays.fill(shadowMeans, 0.0);
+        Arrays.fill(shadowDeviations, 0.0);
+    }
+
+    public int count(int window) {
+        return counts[window];
+    }
+
+    public double mean(int window) {
+        return means[window];
+    }
+
+    /**
+     * Returns the sum of squared deviations from the mean, which is never negative.
+     */
+    public double squaredDeviations(int window) {
+        return Math.max(0.0, deviations[window]);
+    }
+
+    public int windowsAmount() {
+        return windows.length;
+    }
+
+    public boolean isEmpty() {
+        return counts[0] == 0;
+    }
+
+    /**
+     * Writes windows, rolling and shadow accumulators of every window.
+     */
+    void writeSnapshot(SnapshotChannel channel) {
+        channel.writeInt(windows.length);
+        channel.writeInts(windows, 0, windows.length);
+        channel.writeInts(counts, 0, counts.length);
+        channel.writeDoubles(means, 0, means.length);
+        channel.writeDoubles(deviations, 0, deviations.length);
+        channel.writeInts(shadowCounts, 0, shadowCounts.length);
+        channel.writeDoubles(shadowMeans, 0, shadowMeans.length);
+        channel.writeDoubles(shadowDeviations, 0, shadowDeviations.length);
+    }
+
+    void readSnapshot(SnapshotChannel channel) {
+        final var snapshotWindows = new int[channel.readInt()];
+        channel.readInts(snapshotWindows, 0, snapshotWindows.length);
+        if (!Arrays.equals(snapshotWindows, windows)) {
+            throw new IllegalStateException("Snapshot windows %s don't match %s".formatted(Arrays.toString(snapshotWindows), Arrays.toString(windows)));
+        }
+
+        channel.readInts(counts, 0, counts.length);
+        channel.readDoubles(means, 0, means.length);
+        channel.readDoubles(deviations, 0, deviations.length);
+        channel.readInts(shadowCounts, 0, shadowCounts.length);
+        channel.readDoubles(shadowMeans, 0, shadowMeans.length);
+        channel.readDoubles(shadowDeviations, 0, shadowDeviations.length);
+    }
+}
@@ -0,0 +1,17 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+public enum PriceEncoding {
+    DOUBLE(Double.BYTES),
+    FLOAT(Float.BYTES),
+    SCALED_INT(Integer.BYTES);
+
+    private final int bytes;
+
+    PriceEncoding(int bytes) {
+        this.bytes = bytes;
+    }
+
+    public int bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,40 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+
+/**
+ * Stores values outside the heap in a native or memory-mapped segment, so they are not traced by GC.
+ */
+class SegmentDoubleStorage implements DoubleStorage {
+    private final MemorySegment segment;
+    private final int capacity;
+
+    SegmentDoubleStorage(MemorySegment segment) {
+        this.segment = segment;
+        this.capacity = Math.toIntExact(segment.byteSize() / JAVA_DOUBLE.byteSize());
+    }
+
+    @Override
+    public double get(int index) {
+        return segment.getAtIndex(JAVA_DOUBLE, index);
+    }
+
+    @Override
+    public void set(int index,
+                    double value) {
+        segment.setAtIndex(JAVA_DOUBLE, index, value);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    ByteBuffer asByteBuffer(int from,
+                            int count) {
+        return segment.asSlice(from * JAVA_DOUBLE.byteSize(), count * JAVA_DOUBLE.byteSize()).asByteBuffer();
+    }
+}
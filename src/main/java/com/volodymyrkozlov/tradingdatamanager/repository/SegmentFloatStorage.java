@@ -0,0 +1,39 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+
+/**
+ * Stores values as {@code float}, which halves the memory of a buffer and keeps about 7 significant digits of a value.
+ */
+class SegmentFloatStorage implements DoubleStorage {
+    private final MemorySegment segment;
+    private final int capacity;
+
+    SegmentFloatStorage(MemorySegment segment) {
+        this.segment = segment;
+        this.capacity = Math.toIntExact(segment.byteSize() / JAVA_FLOAT.byteSize());
+    }
+
+    @Override
+    public double get(int index) {
+        return segment.getAtIndex(JAVA_FLOAT, index);
+    }
+
+    @Override
+    public void set(int index,
+                    double value) {
+        segment.setAtIndex(JAVA_FLOAT, index, (float) value);
+    }
+
+    @Override
+    public double round(double value) {
+        return (float) value;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
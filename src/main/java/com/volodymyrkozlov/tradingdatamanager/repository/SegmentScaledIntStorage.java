@@ -0,0 +1,54 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.lang.foreign.MemorySegment;
+
+import static com.volodymyrkozlov.tradingdatamanager.utils.MathUtils.powerOfTen;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+/**
+ * Stores values as {@code int} amounts of ticks of {@code 10^-scale}, which halves the memory of a buffer
+ * and keeps values with up to {@code scale} decimals exactly, as long as they fit into an {@code int} of ticks.
+ */
+class SegmentScaledIntStorage implements DoubleStorage {
+    private final MemorySegment segment;
+    private final int capacity;
+    private final int scale;
+    private final double ticksPerUnit;
+
+    SegmentScaledIntStorage(MemorySegment segment,
+                            int scale) {
+        this.segment = segment;
+        this.capacity = Math.toIntExact(segment.byteSize() / JAVA_INT.byteSize());
+        this.scale = scale;
+        this.ticksPerUnit = powerOfTen(scale);
+    }
+
+    @Override
+    public double get(int index) {
+        return segment.getAtIndex(JAVA_INT, index) / ticksPerUnit;
+    }
+
+    @Override
+    public void set(int index,
+                    double value) {
+        segment.setAtIndex(JAVA_INT, index, ticks(value));
+    }
+
+    @Override
+    public double round(double value) {
+        return ticks(value) / ticksPerUnit;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    private int ticks(double value) {
+        final var ticks = Math.rint(value * ticksPerUnit);
+        if (!(Math.abs(ticks) <= Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Price %s cannot be stored with %s decimals".formatted(value, scale));
+        }
+        return (int) ticks;
+    }
+}
@@ -0,0 +1,214 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ByteChannel;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Buffered little-endian reader and writer of snapshot files or of symbols staged in memory.
+ * Off-heap and memory-mapped storages are transferred between their segment and the file channel without a copy
+ * on the heap, heap storages are copied in bulk through the direct buffer.
+ * A channel is used either for writing or for reading.
+ */
+public class SnapshotChannel {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final boolean NATIVE_LITTLE_ENDIAN = ByteOrder.nativeOrder() == LITTLE_ENDIAN;
+
+    private final ByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(LITTLE_ENDIAN);
+
+    public SnapshotChannel(ByteChannel channel) {
+        this.channel = channel;
+        this.buffer.limit(0);
+    }
+
+    public void writeInt(int value) {
+        writable(Integer.BYTES).putInt(value);
+    }
+
+    public void writeLong(long value) {
+        writable(Long.BYTES).putLong(value);
+    }
+
+    public void writeString(String value) {
+        final var bytes = value.getBytes(UTF_8);
+        writable(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+    }
+
+    public int readInt() {
+        return readable(Integer.BYTES).getInt();
+    }
+
+    public long readLong() {
+        return readable(Long.BYTES).getLong();
+    }
+
+    public String readString() {
+        final var bytes = new byte[readInt()];
+        readable(bytes.length).get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes buffered data to the channel.
+     */
+    public void flush() {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    void writeInts(int[] values,
+                   int from,
+                   int count) {
+        for (var written = 0; written < count; ) {
+            final var chunk = Math.min(count - written, writable(Integer.BYTES).remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, from + written, chunk);
+            buffer.position(buffer.position() + chunk * Integer.BYTES);
+            written += chunk;
+        }
+    }
+
+    void writeLongs(long[] values,
+                    int from,
+                    int count) {
+        for (var written = 0; written < count; ) {
+            final var chunk = Math.min(count - written, writable(Long.BYTES).remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, from + written, chunk);
+            buffer.position(buffer.position() + chunk * Long.BYTES);
+            written += chunk;
+        }
+    }
+
+    void writeDoubles(double[] values,
+                      int from,
+                      int count) {
+        for (var written = 0; written < count; ) {
+            final var chunk = Math.min(count - written, writable(Double.BYTES).remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, from + written, chunk);
+            buffer.position(buffer.position() + chunk * Double.BYTES);
+            written += chunk;
+        }
+    }
+
+    void writeDoubles(DoubleStorage storage,
+                      int from,
+                      int count) {
+        switch (storage) {
+            case HeapDoubleStorage heapStorage -> writeDoubles(heapStorage.values(), from, count);
+            case SegmentDoubleStorage segmentStorage when NATIVE_LITTLE_ENDIAN -> {
+                flush();
+                writeFully(segmentStorage.asByteBuffer(from, count));
+            }
+            default -> {
+                for (var i = 0; i < count; i++) {
+                    writable(Double.BYTES).putDouble(storage.get(from + i));
+                }
+            }
+        }
+    }
+
+    void readInts(int[] values,
+                  int from,
+                  int count) {
+        for (var read = 0; read < count; ) {
+            final var chunk = Math.min(count - read, readable(Integer.BYTES).remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, from + read, chunk);
+            buffer.position(buffer.position() + chunk * Integer.BYTES);
+            read += chunk;
+        }
+    }
+
+    void readLongs(long[] values,
+                   int from,
+                   int count) {
+        for (var read = 0; read < count; ) {
+            final var chunk = Math.min(count - read, readable(Long.BYTES).remaining() / Long.BYTES);
+            buffer.asLongBuffer().get(values, from + read, chunk);
+            buffer.position(buffer.position() + chunk * Long.BYTES);
+            read += chunk;
+        }
+    }
+
+    void readDoubles(double[] values,
+                     int from,
+                     int count) {
+        for (var read = 0; read < count; ) {
+            final var chunk = Math.min(count - read, readable(Double.BYTES).remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().get(values, from + read, chunk);
+            buffer.position(buffer.position() + chunk * Double.BYTES);
+            read += chunk;
+        }
+    }
+
+    void readDoubles(DoubleStorage storage,
+                     int from,
+                     int count) {
+        switch (storage) {
+            case HeapDoubleStorage heapStorage -> readDoubles(heapStorage.values(), from, count);
+            case SegmentDoubleStorage segmentStorage when NATIVE_LITTLE_ENDIAN -> {
+                final var buffered = Math.min(count, buffer.remaining() / Double.BYTES);
+                for (var i = 0; i < buffered; i++) {
+                    storage.set(from + i, buffer.getDouble());
+                }
+                readFully(segmentStorage.asByteBuffer(from + buffered, count - buffered));
+            }
+            default -> {
+                for (var i = 0; i < count; i++) {
+                    storage.set(from + i, readable(Double.BYTES).getDouble());
+                }
+            }
+        }
+    }
+
+    private ByteBuffer writable(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+        return buffer;
+    }
+
+    private ByteBuffer readable(int bytes) {
+        if (buffer.remaining() < bytes) {
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (read(buffer) < 0) {
+                    throw new IllegalStateException("Snapshot is truncated");
+                }
+            }
+            buffer.flip();
+        }
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer target) {
+        while (target.hasRemaining()) {
+            if (read(target) < 0) {
+                throw new IllegalStateException("Snapshot is truncated");
+            }
+        }
+    }
+
+    private int read(ByteBuffer target) {
+        try {
+            return channel.read(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot cannot be read", e);
+        }
+    }
+
+    private void writeFully(ByteBuffer source) {
+        try {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot cannot be written", e);
+        }
+    }
+}
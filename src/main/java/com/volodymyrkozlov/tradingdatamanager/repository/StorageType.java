@@ -0,0 +1,7 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+public enum StorageType {
+    HEAP,
+    OFF_HEAP,
+    MAPPED
+}
@@ -0,0 +1,86 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Max K values of symbols, configured as {@code SYMBOL:K} entries or as {@code PREFIX*:K} entries of symbol patterns.
+ * A symbol takes the value of its own entry, then of its longest matching pattern, then the global max K value,
+ * which also bounds values of entries.
+ */
+@Component
+public class SymbolKValues {
+    private static final String PATTERN_SUFFIX = "*";
+
+    private final int maxKValue;
+    private final Map<String, Integer> symbolMaxKValues = new HashMap<>();
+    private final List<Map.Entry<String, Integer>> prefixMaxKValues;
+
+    public SymbolKValues(@Value("${max-k-value}") int maxKValue,
+                         @Value("${symbol-max-k-values}") List<String> symbolMaxKValues) {
+        this.maxKValue = maxKValue;
+
+        final var patternMaxKValues = new HashMap<String, Integer>();
+        for (final var symbolMaxKValue : symbolMaxKValues) {
+            if (symbolMaxKValue.isBlank()) {
+                continue;
+            }
+
+            final var separator = symbolMaxKValue.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Symbol max K value %s doesn't match SYMBOL:K".formatted(symbolMaxKValue));
+            }
+            final var symbol = symbolMaxKValue.substring(0, separator).strip();
+            final var kValue = parseKValue(symbolMaxKValue, symbolMaxKValue.substring(separator + 1).strip());
+
+            if (symbol.endsWith(PATTERN_SUFFIX)) {
+                patternMaxKValues.put(symbol.substring(0, symbol.length() - PATTERN_SUFFIX.length()), kValue);
+            } else {
+                this.symbolMaxKValues.put(symbol, kValue);
+            }
+        }
+
+        this.prefixMaxKValues = patternMaxKValues.entrySet()
+                .stream()
+                .sorted(Comparator.comparingInt((Map.Entry<String, Integer> entry) -> entry.getKey().length()).reversed())
+                .toList();
+    }
+
+    public static SymbolKValues globalKValue(int maxKValue) {
+        return new SymbolKValues(maxKValue, List.of());
+    }
+
+    public int maxKValue(String symbol) {
+        final var symbolMaxKValue = symbolMaxKValues.get(symbol);
+        if (symbolMaxKValue != null) {
+            return symbolMaxKValue;
+        }
+
+        for (final var prefixMaxKValue : prefixMaxKValues) {
+            if (symbol.startsWith(prefixMaxKValue.getKey())) {
+                return prefixMaxKValue.getValue();
+            }
+        }
+        return maxKValue;
+    }
+
+    private int parseKValue(String symbolMaxKValue,
+                            String kValue) {
+        final int k;
+        try {
+            k = Integer.parseInt(kValue);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Symbol max K value %s doesn't match SYMBOL:K".formatted(symbolMaxKValue), e);
+        }
+
+        if (k < 1 || k > maxKValue) {
+            throw new IllegalArgumentException("Max K value of %s is not between 1 and %s".formatted(symbolMaxKValue, maxKValue));
+        }
+        return k;
+    }
+}
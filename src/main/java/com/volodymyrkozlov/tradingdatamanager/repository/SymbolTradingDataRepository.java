@@ -1,11 +1,88 @@
 package com.volodymyrkozlov.tradingdatamanager.repository;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface SymbolTradingDataRepository {
 
     void addSymbolTradingData(String symbol,
                               List<Double> prices);
 
+    void addSymbolTradingData(String symbol,
+                              double[] prices,
+                              int length);
+
+    /**
+     * Adds prices with their epoch millis timestamps, which must not be earlier than timestamps added before.
+     * Prices of a symbol are added either all with timestamps or all without them.
+     */
+    void addSymbolTradingData(String symbol,
+                              double[] prices,
+                              long[] timestamps,
+                              int length);
+
+    /**
+     * Queues the batch to the writer of the symbol without waiting for it to be applied, a batch rejected once it's applied
+     * is counted by the writer of the symbol.
+     * The batch is copied into a slot of the writer, so the arrays may be reused by the caller once it's queued.
+     *
+     * @param timestamps timestamps of the prices or {@code null} if the prices are added without them
+     * @return sequence of the batch, the batch is visible once the applied sequence of the symbol reaches it
+     * @throws BatchQueueFullException if the queue of the symbol is full
+     * @throws IllegalArgumentException if a price of the batch cannot be stored or its timestamps go backwards
+     */
+    long queueSymbolTradingData(String symbol,
+                                double[] prices,
+                                long[] timestamps,
+                                int length);
+
+    /**
+     * Adds batches of several symbols, prices of the batch {@code i} are {@code prices[offsets[i]..offsets[i + 1])}.
+     */
+    void addSymbolsTradingData(List<String> symbols,
+                               double[] prices,
+                               int[] offsets);
+
+    default void restoreSymbolTradingData(String symbol,
+                                          double[] prices,
+                                          int length) {
+        restoreSymbolTradingData(symbol, prices, null, length);
+    }
+
+    /**
+     * @param timestamps timestamps of the prices or {@code null} if the prices were added without them
+     */
+    void restoreSymbolTradingData(String symbol,
+                                  double[] prices,
+                                  long[] timestamps,
+                                  int length);
+
+    void restoreSymbolTradingData(String symbol,
+                                  Consumer<TradingDataEntity> restorer);
+
+    /**
+     * Removes the symbol, its entity is cleared and reused by other symbols.
+     */
+    void removeSymbolTradingData(String symbol);
+
+    /**
+     * Removes symbols which weren't written or read during the idle timeout.
+     *
+     * @return removed symbols
+     */
+    List<String> removeIdleSymbolsTradingData(Duration idleTimeout);
+
+    void restoreSymbolRemoval(String symbol);
+
     TradingDataEntity getTradingData(String symbol);
+
+    /**
+     * Registers a listener which is called with the symbol once a batch of the symbol is applied.
+     * The listener is called by the writer of the symbol after the batch is visible to readers, so it must not block.
+     */
+    void addAppliedListener(Consumer<String> listener);
+
+    void forEachTradingData(BiConsumer<String, TradingDataEntity> consumer);
 }
@@ -0,0 +1,117 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+/**
+ * Ring buffer of epoch millis timestamps of trading prices, a timestamp has the index of its price.
+ * Nothing is allocated until the first timestamp, then the buffer grows by doubling up to its max capacity,
+ * so symbols added without timestamps don't pay for them.
+ * Timestamps are non-decreasing, so the start of a time window is found by a binary search.
+ * Indices are a monotonic 64-bit sequence like indices of prices.
+ */
+public class TimestampRingBuffer {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final int maxCapacity;
+    private long[] timestamps = new long[0];
+    private long position = 0;
+    private int positionSlot = 0;
+
+    public TimestampRingBuffer(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+
+    public void add(long timestamp) {
+        if (position == timestamps.length && timestamps.length < maxCapacity) {
+            grow((int) Math.min(maxCapacity, Math.max(INITIAL_CAPACITY, 2L * timestamps.length)));
+        }
+
+        timestamps[positionSlot] = timestamp;
+        position++;
+        positionSlot = positionSlot + 1 < timestamps.length ? positionSlot + 1 : 0;
+    }
+
+    public long getByIndex(long index) {
+        if (index < position - timestamps.length || index >= position) {
+            throw new IndexOutOfBoundsException("Index out of buffer range");
+        }
+        return timestamps[slot(index)];
+    }
+
+    public long last() {
+        return getByIndex(position - 1);
+    }
+
+    /**
+     * Returns the amount of last timestamps which are later than the timestamp.
+     * Time complexity is O(log n)
+     */
+    public int countAfter(long timestamp) {
+        var low = position - size();
+        var high = position;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (getByIndex(middle) > timestamp) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return (int) (position - low);
+    }
+
+    /**
+     * Drops all timestamps and releases the buffer.
+     */
+    public void clear() {
+        timestamps = new long[0];
+        position = 0;
+        positionSlot = 0;
+    }
+
+    public int size() {
+        return (int) Math.min(position, timestamps.length);
+    }
+
+    public boolean isEmpty() {
+        return position == 0;
+    }
+
+    /**
+     * Writes position and buffered timestamps from the oldest one.
+     */
+    void writeSnapshot(SnapshotChannel channel) {
+        channel.writeLong(position);
+
+        final var firstSlot = size() == 0 ? 0 : slot(position - size());
+        final var headTimestamps = Math.min(size(), timestamps.length - firstSlot);
+        channel.writeLongs(timestamps, firstSlot, headTimestamps);
+        channel.writeLongs(timestamps, 0, size() - headTimestamps);
+    }
+
+    void readSnapshot(SnapshotChannel channel) {
+        position = channel.readLong();
+
+        var capacity = position == 0 ? 0 : INITIAL_CAPACITY;
+        while (capacity < Math.min(position, maxCapacity)) {
+            capacity = (int) Math.min(maxCapacity, 2L * capacity);
+        }
+        timestamps = new long[Math.min(capacity, maxCapacity)];
+        positionSlot = timestamps.length == 0 ? 0 : (int) (position % timestamps.length);
+
+        final var firstSlot = size() == 0 ? 0 : slot(position - size());
+        final var headTimestamps = Math.min(size(), timestamps.length - firstSlot);
+        channel.readLongs(timestamps, firstSlot, headTimestamps);
+        channel.readLongs(timestamps, 0, size() - headTimestamps);
+    }
+
+    private int slot(long index) {
+        final var slot = positionSlot - (int) (position - index);
+        return slot >= 0 ? slot : slot + timestamps.length;
+    }
+
+    private void grow(int capacity) {
+        final var grownTimestamps = new long[capacity];
+        System.arraycopy(timestamps, 0, grownTimestamps, 0, (int) position);
+        timestamps = grownTimestamps;
+        positionSlot = (int) position;
+    }
+}
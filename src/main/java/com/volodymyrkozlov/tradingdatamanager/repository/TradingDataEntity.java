@@ -1,21 +1,171 @@
 package com.volodymyrkozlov.tradingdatamanager.repository;
 
-import java.util.Deque;
-import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.volodymyrkozlov.tradingdatamanager.utils.ValidationUtils.validateRequired;
 
 public record TradingDataEntity(DoubleRingBuffer tradingPrices,
-                                DoubleRingBuffer tradingPricesPrefixSums,
-                                DoubleRingBuffer tradingPricesPrefixSquares,
-                                Map<Integer, Deque<Integer>> maxDequeues,
-                                Map<Integer, Deque<Integer>> minDequeues) {
+                                MultiWindowMoments moments,
+                                MultiWindowDeque maxDeque,
+                                MultiWindowDeque minDeque,
+                                BlockSegmentTree blocks,
+                                TimestampRingBuffer timestamps,
+                                TradingDataLease lease,
+                                StampedLock lock,
+                                TradingDataWriter writer) {
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 16;
+
     public TradingDataEntity {
         validateRequired(tradingPrices, "tradingPrices");
-        validateRequired(tradingPricesPrefixSums, "tradingPricesPrefixSums");
-        validateRequired(tradingPricesPrefixSquares, "tradingPricesPrefixSquares");
-        validateRequired(maxDequeues, "maxDequeues");
-        validateRequired(minDequeues, "minDequeues");
+        validateRequired(moments, "moments");
+        validateRequired(maxDeque, "maxDeque");
+        validateRequired(minDeque, "minDeque");
+        validateRequired(blocks, "blocks");
+        validateRequired(timestamps, "timestamps");
+        validateRequired(lease, "lease");
+        validateRequired(lock, "lock");
+        validateRequired(writer, "writer");
+    }
+
+    /**
+     * Applies a batch exclusively, every write publishes a new lock stamp once the batch is committed.
+     */
+    public void write(Consumer<TradingDataEntity> writer) {
+        final var stamp = lock.writeLock();
+        try {
+            writer.accept(this);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Applies a batch of the symbol exclusively, the batch is skipped if the entity was released by the symbol,
+     * even if the entity is already reused by another symbol.
+     *
+     * @return {@code false} if the batch was skipped
+     */
+    public boolean write(String symbol,
+                         Consumer<TradingDataEntity> writer) {
+        return write(symbol, writer, (entity, entityWriter) -> entityWriter.accept(entity));
+    }
+
+    /**
+     * Applies a batch of the symbol exclusively, the batch is passed to the writer, so a writer shared by all batches
+     * is applied without capturing them.
+     *
+     * @return {@code false} if the batch was skipped
+     */
+    public <T> boolean write(String symbol,
+                             T batch,
+                             BiConsumer<TradingDataEntity, T> writer) {
+        final var stamp = lock.writeLock();
+        try {
+            if (!lease.isHeldBy(symbol)) {
+                return false;
+            }
+
+            writer.accept(this, batch);
+            lease.touch();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads committed data without blocking writers: the reader is retried if a batch was written while it was running,
+     * so the result is calculated against a single committed batch.
+     * Only if optimistic reads keep failing under continuous ingest the reader falls back to a shared read lock.
+     */
+    public <T> T read(Function<TradingDataEntity, T> reader) {
+        for (var attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            final var stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            try {
+                final var result = reader.apply(this);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+
+        return readLocked(reader);
+    }
+
+    /**
+     * Reads committed data of the symbol, the read fails if the entity was released by the symbol,
+     * even if the entity is already reused by another symbol, or if no batch of the symbol is applied yet.
+     */
+    public <T> T read(String symbol,
+                      Function<TradingDataEntity, T> reader) {
+        lease.touch();
+        return read(tradingData -> {
+            if (!tradingData.lease().isHeldBy(symbol) || tradingData.tradingPrices().currentIndex() < 0) {
+                throw new EntityNotFoundException("Trading price data is not found for %s".formatted(symbol));
+            }
+            return reader.apply(tradingData);
+        });
+    }
+
+    /**
+     * Reads under the shared read lock, which blocks writers of the symbol but doesn't invalidate optimistic readers.
+     * It's meant for long readers like snapshots, which shouldn't be retried.
+     */
+    public <T> T readLocked(Function<TradingDataEntity, T> reader) {
+        final var stamp = lock.readLock();
+        try {
+            return reader.apply(this);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes the entity to a snapshot, the caller is expected to hold a lock.
+     */
+    public void writeSnapshot(SnapshotChannel channel) {
+        tradingPrices.writeSnapshot(channel);
+        moments.writeSnapshot(channel);
+        maxDeque.writeSnapshot(channel);
+        minDeque.writeSnapshot(channel);
+        timestamps.writeSnapshot(channel);
+    }
+
+    /**
+     * Replaces the entity data with a snapshot, the caller is expected to hold the write lock.
+     * Blocks are not a part of the snapshot, they are rebuilt from the trading prices.
+     */
+    public void readSnapshot(SnapshotChannel channel) {
+        tradingPrices.readSnapshot(channel);
+        moments.readSnapshot(channel);
+        maxDeque.readSnapshot(channel);
+        minDeque.readSnapshot(channel);
+        timestamps.readSnapshot(channel);
+        blocks.rebuild(tradingPrices);
+    }
+
+    /**
+     * Drops all data of the entity, the caller is expected to hold the write lock.
+     */
+    public void clear() {
+        tradingPrices.clear();
+        moments.clear();
+        maxDeque.clear();
+        minDeque.clear();
+        blocks.clear();
+        timestamps.clear();
     }
 
     public static Builder tradingDataEntityBuilder() {
@@ -24,38 +174,62 @@ public record TradingDataEntity(DoubleRingBuffer tradingPrices,
 
     public static class Builder {
         private DoubleRingBuffer tradingPrices;
-        private DoubleRingBuffer tradingPricesPrefixSums;
-        private DoubleRingBuffer tradingPricesPrefixSquares;
-        private Map<Integer, Deque<Integer>> maxDequeues;
-        private Map<Integer, Deque<Integer>> minDequeues;
+        private MultiWindowMoments moments;
+        private MultiWindowDeque maxDeque;
+        private MultiWindowDeque minDeque;
+        private BlockSegmentTree blocks;
+        private TimestampRingBuffer timestamps;
+        private TradingDataLease lease = new TradingDataLease();
+        private StampedLock lock = new StampedLock();
+        private TradingDataWriter writer = new TradingDataWriter();
 
         public Builder tradingPrices(DoubleRingBuffer tradingPrices) {
             this.tradingPrices = tradingPrices;
             return this;
         }
 
-        public Builder tradingPricesPrefixSums(DoubleRingBuffer tradingPricesPrefixSums) {
-            this.tradingPricesPrefixSums = tradingPricesPrefixSums;
+        public Builder moments(MultiWindowMoments moments) {
+            this.moments = moments;
+            return this;
+        }
+
+        public Builder maxDeque(MultiWindowDeque maxDeque) {
+            this.maxDeque = maxDeque;
+            return this;
+        }
+
+        public Builder minDeque(MultiWindowDeque minDeque) {
+            this.minDeque = minDeque;
+            return this;
+        }
+
+        public Builder blocks(BlockSegmentTree blocks) {
+            this.blocks = blocks;
+            return this;
+        }
+
+        public Builder timestamps(TimestampRingBuffer timestamps) {
+            this.timestamps = timestamps;
             return this;
         }
 
-        public Builder tradingPricesPrefixSquares(DoubleRingBuffer tradingPricesPrefixSquares) {
-            this.tradingPricesPrefixSquares = tradingPricesPrefixSquares;
+        public Builder lease(TradingDataLease lease) {
+            this.lease = lease;
             return this;
         }
 
-        public Builder maxDequeues(Map<Integer, Deque<Integer>> maxDequeues) {
-            this.maxDequeues = maxDequeues;
+        public Builder lock(StampedLock lock) {
+            this.lock = lock;
             return this;
         }
 
-        public Builder minDequeues(Map<Integer, Deque<Integer>> minDequeues) {
-            this.minDequeues = minDequeues;
+        public Builder writer(TradingDataWriter writer) {
+            this.writer = writer;
             return this;
         }
 
         public TradingDataEntity build() {
-            return new TradingDataEntity(tradingPrices, tradingPricesPrefixSums, tradingPricesPrefixSquares, maxDequeues, minDequeues);
+            return new TradingDataEntity(tradingPrices, moments, maxDeque, minDeque, blocks, timestamps, lease, lock, writer);
         }
     }
 }
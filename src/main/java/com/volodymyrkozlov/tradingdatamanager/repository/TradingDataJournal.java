@@ -0,0 +1,65 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+public interface TradingDataJournal {
+
+    /**
+     * Appends a batch before it is applied, it's called under the write lock of the symbol,
+     * so records of a symbol are journaled in the order they are applied.
+     *
+     * @param timestamps timestamps of the prices or {@code null} if the prices are added without them
+     */
+    void append(String symbol,
+                double[] prices,
+                long[] timestamps,
+                int offset,
+                int length);
+
+    default void append(String symbol,
+                        double[] prices,
+                        int offset,
+                        int length) {
+        append(symbol, prices, null, offset, length);
+    }
+
+    /**
+     * Appends a removal of the symbol, it's called under the write lock of the symbol.
+     */
+    void remove(String symbol);
+
+    /**
+     * Waits until all appended records are durable.
+     */
+    void sync();
+
+    /**
+     * Requests appended records to be made durable without waiting for it, they're synced within a bounded delay.
+     */
+    void syncAsync();
+
+    /**
+     * Journal which doesn't persist batches.
+     */
+    static TradingDataJournal disabledJournal() {
+        return new TradingDataJournal() {
+            @Override
+            public void append(String symbol,
+                               double[] prices,
+                               long[] timestamps,
+                               int offset,
+                               int length) {
+            }
+
+            @Override
+            public void remove(String symbol) {
+            }
+
+            @Override
+            public void sync() {
+            }
+
+            @Override
+            public void syncAsync() {
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Symbol which holds a pooled trading data entity and the time the entity was last accessed by the symbol.
+ * The symbol is changed under the write lock of the entity, so readers check it within their read.
+ * Access time is published by plain volatile writes, which are skipped if it was updated recently,
+ * so concurrent readers of a symbol don't keep invalidating its cache line.
+ */
+public class TradingDataLease {
+    private static final long ACCESS_RESOLUTION_NANOS = MILLISECONDS.toNanos(100);
+
+    private volatile String symbol;
+    private volatile long accessedNanos;
+
+    public void acquire(String symbol) {
+        this.symbol = symbol;
+        this.accessedNanos = System.nanoTime();
+    }
+
+    public void release() {
+        this.symbol = null;
+    }
+
+    public boolean isHeldBy(String symbol) {
+        return symbol.equals(this.symbol);
+    }
+
+    public void touch() {
+        final var nowNanos = System.nanoTime();
+        if (nowNanos - accessedNanos >= ACCESS_RESOLUTION_NANOS) {
+            accessedNanos = nowNanos;
+        }
+    }
+
+    public long idleNanos(long nowNanos) {
+        return nowNanos - accessedNanos;
+    }
+}
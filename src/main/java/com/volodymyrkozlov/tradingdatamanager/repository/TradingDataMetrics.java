@@ -0,0 +1,48 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.util.function.IntSupplier;
+
+public interface TradingDataMetrics {
+
+    /**
+     * Registers a gauge of symbols which can still be added.
+     */
+    void registerAvailableSymbols(IntSupplier availableSymbols);
+
+    /**
+     * Records an added batch, it's called under the write lock of the symbol, so it must not block or allocate.
+     *
+     * @param lockWaitNanos time the batch waited for the write lock of the symbol
+     */
+    void recordBatch(String symbol,
+                     TradingDataEntity tradingData,
+                     int length,
+                     long lockWaitNanos);
+
+    /**
+     * Removes meters of a removed symbol, so they don't report its entity once it's reused by another symbol.
+     */
+    void removeSymbol(String symbol);
+
+    /**
+     * Metrics which aren't recorded.
+     */
+    static TradingDataMetrics disabledMetrics() {
+        return new TradingDataMetrics() {
+            @Override
+            public void registerAvailableSymbols(IntSupplier availableSymbols) {
+            }
+
+            @Override
+            public void recordBatch(String symbol,
+                                    TradingDataEntity tradingData,
+                                    int length,
+                                    long lockWaitNanos) {
+            }
+
+            @Override
+            public void removeSymbol(String symbol) {
+            }
+        };
+    }
+}
@@ -0,0 +1,450 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single writer of an entity: batches are published into a ring of pre-allocated slots and applied back to back
+ * by one drainer, so callers don't contend on the entity lock and nothing is allocated per batch.
+ * Every slot keeps a price array of the max batch size, a batch is copied into its slot, so request buffers
+ * are reused as soon as the batch is published. Timestamp arrays are allocated once a slot gets timestamps.
+ * A caller claims the next sequence by a CAS once the drainer has passed the previous batch of its slot, fills
+ * the slot and publishes it. A drainer is started on the executor once a batch is published to an idle writer
+ * and stops once all claimed batches are applied.
+ * A slot of a caller waiting for its batch is freed by the caller once it has read the result,
+ * a slot of a queued batch is freed by the drainer, which counts a rejected queued batch.
+ * Every wait has a thread which ends it and wakes the waiter up: the publisher wakes the drainer waiting for its slot,
+ * the drainer wakes callers waiting to claim a sequence and the caller waiting for its batch, and whoever frees a slot
+ * wakes the caller waiting to fill it. A waiter registers itself before it checks its condition again, so it isn't missed.
+ * The applied sequence is published once a batch is applied or rejected, so batches up to it are visible to readers.
+ * Sequences count batches of the symbol which holds the entity, they are restarted once the entity is acquired by a symbol.
+ */
+public class TradingDataWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TradingDataWriter.class);
+    static final int DEFAULT_QUEUE_SIZE = 1 << 4;
+    public static final long NO_SEQUENCE = -1;
+
+    private static final int FREE = 0;
+    private static final int PUBLISHED = 1;
+    private static final int APPLIED = 2;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int maxBatchSize;
+    private final WaitStrategy waitStrategy;
+    private final Executor executor;
+    private final SlotApplier applier;
+    private final AtomicLong claimedSequence = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Queue<Thread> claimWaiters = new ConcurrentLinkedQueue<>();
+    private volatile Thread waitingDrainer;
+    private volatile long appliedSequence = 0;
+    private volatile long baseSequence = 0;
+    private volatile long rejectedBatches = 0;
+    private volatile long rejectedBase = 0;
+    private volatile long lastRejectedSequence = 0;
+    private volatile boolean abandoned;
+
+    /**
+     * Creates a writer of an entity which isn't written by batches, it rejects batches in the thread of the caller.
+     */
+    public TradingDataWriter() {
+        this(1, 0, WaitStrategy.PARK, Runnable::run, slot -> {
+            throw new IllegalStateException("Trading data of %s isn't written by batches".formatted(slot.symbol()));
+        });
+    }
+
+    TradingDataWriter(int queueSize,
+                      int maxBatchSize,
+                      WaitStrategy waitStrategy,
+                      Executor executor,
+                      SlotApplier applier) {
+        if (queueSize < 1 || Integer.bitCount(queueSize) != 1) {
+            throw new IllegalArgumentException("Writer queue size %s is not a power of two".formatted(queueSize));
+        }
+
+        this.slots = new Slot[queueSize];
+        for (var i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(maxBatchSize);
+        }
+        this.mask = queueSize - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.waitStrategy = waitStrategy;
+        this.executor = executor;
+        this.applier = applier;
+    }
+
+    /**
+     * Applies the batch and waits for it.
+     *
+     * @return {@code false} if the batch was skipped since the entity was released by the symbol
+     */
+    boolean write(TradingDataEntity entity,
+                  String symbol,
+                  double[] prices,
+                  long[] timestamps,
+                  int offset,
+                  int length,
+                  boolean journaled) {
+        validateBatchSize(length);
+        final var sequence = claim(true);
+        final var slot = fill(sequence, entity, symbol, prices, timestamps, offset, length, journaled);
+        publish(slot, true);
+        return await(slot);
+    }
+
+    /**
+     * Queues the batch without waiting for a free slot or for the batch to be applied.
+     *
+     * @return sequence of the batch within the symbol or {@link #NO_SEQUENCE} if all slots are taken
+     */
+    long tryQueue(TradingDataEntity entity,
+                  String symbol,
+                  double[] prices,
+                  long[] timestamps,
+                  int length) {
+        validateBatchSize(length);
+        final var sequence = claim(false);
+        if (sequence == NO_SEQUENCE) {
+            return NO_SEQUENCE;
+        }
+
+        publish(fill(sequence, entity, symbol, prices, timestamps, 0, length, true), false);
+        return sequence - baseSequence;
+    }
+
+    /**
+     * Sequence of the last applied or rejected batch of the symbol which holds the entity.
+     */
+    public long appliedSequence() {
+        return Math.max(0, appliedSequence - baseSequence);
+    }
+
+    /**
+     * Amount of queued batches of the symbol which were rejected once they were applied.
+     */
+    public long rejectedBatches() {
+        return rejectedBatches - rejectedBase;
+    }
+
+    /**
+     * Sequence of the last queued batch of the symbol which was rejected once it was applied or {@code 0} if there is none.
+     */
+    public long lastRejectedSequence() {
+        return Math.max(0, lastRejectedSequence - baseSequence);
+    }
+
+    /**
+     * Restarts sequences for the symbol which acquired the entity, batches claimed before it belong to the previous symbol
+     * and are dropped once they're applied. It's called under the write lock of the entity together with its lease.
+     */
+    void restart() {
+        baseSequence = claimedSequence.get();
+        rejectedBase = rejectedBatches;
+        abandoned = false;
+    }
+
+    /**
+     * Rejects queued batches of the symbol which are applied until the entity is acquired again, it's called once
+     * the entity is released since the first batch of the symbol was rejected, so batches queued after it
+     * aren't silently dropped. Waiting callers still see the batch as skipped and apply it to a new entity.
+     */
+    void abandon() {
+        abandoned = true;
+    }
+
+    private void validateBatchSize(int length) {
+        if (length > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size %s is greater than allowed %s".formatted(length, maxBatchSize));
+        }
+    }
+
+    /**
+     * Claims the next sequence, a waiting caller is registered as a claim waiter while all slots are taken.
+     */
+    private long claim(boolean waiting) {
+        var registered = false;
+        try {
+            for (var idles = 0; ; ) {
+                final var claimed = claimedSequence.get();
+                if (claimed + 1 - slots.length > appliedSequence) {
+                    if (!waiting) {
+                        return NO_SEQUENCE;
+                    }
+                    if (registered) {
+                        waitStrategy.idle(idles++);
+                    } else {
+                        claimWaiters.add(Thread.currentThread());
+                        registered = true;
+                    }
+                } else if (claimedSequence.compareAndSet(claimed, claimed + 1)) {
+                    return claimed + 1;
+                }
+            }
+        } finally {
+            if (registered) {
+                claimWaiters.remove(Thread.currentThread());
+            }
+        }
+    }
+
+    /**
+     * Copies the batch into the slot of the sequence, the slot may still wait for the caller of its previous batch.
+     */
+    private Slot fill(long sequence,
+                      TradingDataEntity entity,
+                      String symbol,
+                      double[] prices,
+                      long[] timestamps,
+                      int offset,
+                      int length,
+                      boolean journaled) {
+        final var slot = slots[(int) (sequence & mask)];
+        if (slot.state != FREE) {
+            slot.filler = Thread.currentThread();
+            for (var idles = 0; slot.state != FREE; idles++) {
+                waitStrategy.idle(idles);
+            }
+            slot.filler = null;
+        }
+
+        slot.sequence = sequence;
+        slot.entity = entity;
+        slot.symbol = symbol;
+        slot.length = length;
+        slot.journaled = journaled;
+        if (length > 0) {
+            System.arraycopy(prices, offset, slot.prices, 0, length);
+        }
+        slot.timestamped = timestamps != null;
+        if (slot.timestamped) {
+            if (slot.timestamps == null) {
+                slot.timestamps = new long[maxBatchSize];
+            }
+            System.arraycopy(timestamps, offset, slot.timestamps, 0, length);
+        }
+        return slot;
+    }
+
+    private void publish(Slot slot,
+                         boolean waited) {
+        slot.waiter = waited ? Thread.currentThread() : null;
+        slot.state = PUBLISHED;
+        // the drainer checks the state once it's set as the waiting one, so either it sees the slot or it's woken up
+        final var drainer = waitingDrainer;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+        }
+
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(null));
+            } catch (RejectedExecutionException e) {
+                // nothing would apply the published batches, so they're rejected in the thread of the caller
+                drain(e);
+            }
+        }
+    }
+
+    private boolean await(Slot slot) {
+        for (var idles = 0; slot.state != APPLIED; idles++) {
+            waitStrategy.idle(idles);
+        }
+
+        final var applied = slot.applied;
+        final var failure = slot.failure;
+        slot.failure = null;
+        free(slot);
+        if (failure instanceof RuntimeException runtimeFailure) {
+            throw runtimeFailure;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Batch cannot be applied", failure);
+        }
+        return applied;
+    }
+
+    /**
+     * Applies claimed batches in their order, claimed sequences are checked again once the drainer is stopped,
+     * since a batch may be claimed after the last check but before the drainer was stopped.
+     * The drainer is stopped even if it fails, so the next published batch starts a new one.
+     *
+     * @param rejection failure of all drained batches if they cannot be applied, or {@code null}
+     */
+    private void drain(RuntimeException rejection) {
+        do {
+            try {
+                for (var sequence = appliedSequence + 1; sequence <= claimedSequence.get(); sequence++) {
+                    final var slot = slots[(int) (sequence & mask)];
+                    if (slot.state != PUBLISHED) {
+                        waitingDrainer = Thread.currentThread();
+                        for (var idles = 0; slot.state != PUBLISHED; idles++) {
+                            waitStrategy.idle(idles);
+                        }
+                        waitingDrainer = null;
+                    }
+                    apply(slot, rejection);
+                }
+            } finally {
+                waitingDrainer = null;
+                draining.set(false);
+            }
+        } while (claimedSequence.get() != appliedSequence && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Applies the slot, any failure of the applier including an {@link Error} is passed to the caller of the batch
+     * or counted as a rejected queued batch, so the drainer goes on with the next batches.
+     */
+    private void apply(Slot slot,
+                       RuntimeException rejection) {
+        var applied = false;
+        Throwable failure = rejection;
+        slot.applyingNanos = System.nanoTime();
+        try {
+            if (rejection == null) {
+                if (abandoned && slot.waiter == null && slot.sequence > baseSequence) {
+                    throw new IllegalStateException("First batch of %s was rejected".formatted(slot.symbol));
+                }
+                applied = slot.sequence > baseSequence && applier.apply(slot);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        final var waiter = slot.waiter;
+        slot.waiter = null;
+
+        if (waiter != null) {
+            advance(slot.sequence);
+            slot.applied = applied;
+            slot.failure = failure;
+            slot.state = APPLIED;
+            LockSupport.unpark(waiter);
+            return;
+        }
+
+        // a rejection is recorded before the applied sequence, so it's seen together with the sequence of the batch
+        if (failure != null) {
+            LOGGER.warn("Queued batch {} of {} is rejected: {}", slot.sequence - baseSequence, slot.symbol, failure.getMessage());
+            lastRejectedSequence = slot.sequence;
+            rejectedBatches++;
+        } else if (!applied) {
+            LOGGER.warn("Queued batch {} of {} is dropped since the symbol was removed", slot.sequence, slot.symbol);
+        }
+        advance(slot.sequence);
+        free(slot);
+    }
+
+    /**
+     * Publishes the applied sequence and wakes up callers waiting to claim a sequence, since the slot of the sequence
+     * may be claimed again.
+     */
+    private void advance(long sequence) {
+        appliedSequence = sequence;
+        if (!claimWaiters.isEmpty()) {
+            claimWaiters.forEach(LockSupport::unpark);
+        }
+    }
+
+    /**
+     * Frees the slot and wakes up the caller waiting to fill it, the caller checks the state once it's set as the filler,
+     * so either it sees the free slot or it's woken up.
+     */
+    private static void free(Slot slot) {
+        slot.state = FREE;
+        final var filler = slot.filler;
+        if (filler != null) {
+            LockSupport.unpark(filler);
+        }
+    }
+
+    /**
+     * Applies a published slot to its entity.
+     */
+    @FunctionalInterface
+    interface SlotApplier {
+
+        /**
+         * @return {@code false} if the slot was skipped since the entity was released by the symbol
+         */
+        boolean apply(Slot slot);
+    }
+
+    /**
+     * Reusable slot of a batch, the slot is written by its caller before it's published
+     * and by the drainer before it's applied, so plain fields are ordered by the volatile state.
+     */
+    static final class Slot {
+        private final double[] prices;
+        private long[] timestamps;
+        private volatile int state = FREE;
+        private long sequence;
+        private TradingDataEntity entity;
+        private String symbol;
+        private int length;
+        private boolean timestamped;
+        private boolean journaled;
+        private long applyingNanos;
+        private Thread waiter;
+        private volatile Thread filler;
+        private boolean applied;
+        private Throwable failure;
+
+        private Slot(int maxBatchSize) {
+            this.prices = new double[maxBatchSize];
+        }
+
+        TradingDataEntity entity() {
+            return entity;
+        }
+
+        String symbol() {
+            return symbol;
+        }
+
+        double[] prices() {
+            return prices;
+        }
+
+        /**
+         * @return timestamps of the prices or {@code null} if the batch doesn't have them
+         */
+        long[] timestamps() {
+            return timestamped ? timestamps : null;
+        }
+
+        int length() {
+            return length;
+        }
+
+        boolean journaled() {
+            return journaled;
+        }
+
+        /**
+         * @return {@code true} if no caller waits for the slot, so the batch was acknowledged once it was queued
+         */
+        boolean queued() {
+            return waiter == null;
+        }
+
+        /**
+         * @return time the drainer started to apply the slot, so the time until the write lock is taken is the lock wait
+         */
+        long applyingNanos() {
+            return applyingNanos;
+        }
+    }
+}
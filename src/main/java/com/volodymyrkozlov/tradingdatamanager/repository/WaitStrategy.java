@@ -0,0 +1,52 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a caller of a writer waits for a free slot or for its batch to be applied, and how a drainer waits
+ * for a claimed slot to be published. Spinning keeps the latency lowest but occupies a core while waiting,
+ * yielding gives the core to other threads, parking releases it until the thread which ends the wait wakes the waiter up.
+ * A waiter checks its condition after every idle, since a parked thread may also return spuriously.
+ * Spinning and yielding fall back to parking after a bounded number of tries, since writers run on virtual threads
+ * and a waiter which never unmounts may keep the drainer it waits for off the carriers.
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        void idle(int idles) {
+            if (idles < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                park();
+            }
+        }
+    },
+    YIELD {
+        @Override
+        void idle(int idles) {
+            if (idles < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                park();
+            }
+        }
+    },
+    PARK {
+        @Override
+        void idle(int idles) {
+            park();
+        }
+    };
+
+    private static final int SPIN_TRIES = 1 << 12;
+    private static final int YIELD_TRIES = 1 << 6;
+
+    /**
+     * @param idles amount of idles of the current wait before this one
+     */
+    abstract void idle(int idles);
+
+    private static void park() {
+        LockSupport.park();
+    }
+}
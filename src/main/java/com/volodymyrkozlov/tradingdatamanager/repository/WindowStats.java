@@ -0,0 +1,11 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+/**
+ * Stats of a window of last trading prices.
+ */
+public record WindowStats(int count,
+                          double min,
+                          double max,
+                          double mean,
+                          double squaredDeviations) {
+}
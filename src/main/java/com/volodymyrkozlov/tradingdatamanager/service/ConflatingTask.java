@@ -0,0 +1,53 @@
+package com.volodymyrkozlov.tradingdatamanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the task on the executor once it's signalled, signals received while the task runs are conflated into
+ * a single run after it, so the task never runs concurrently and always runs after the latest signal.
+ */
+final class ConflatingTask {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConflatingTask.class);
+
+    private final AtomicInteger signals = new AtomicInteger();
+    private final Executor executor;
+    private final Runnable task;
+
+    ConflatingTask(Executor executor,
+                   Runnable task) {
+        this.executor = executor;
+        this.task = task;
+    }
+
+    /**
+     * Signals are dropped once the executor is shut down.
+     */
+    void signal() {
+        if (signals.getAndIncrement() != 0) {
+            return;
+        }
+
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            signals.set(0);
+        }
+    }
+
+    private void run() {
+        int handledSignals;
+        do {
+            handledSignals = signals.get();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Conflated task failed", e);
+            }
+        } while (signals.addAndGet(-handledSignals) != 0);
+    }
+}
@@ -0,0 +1,160 @@
+package com.volodymyrkozlov.tradingdatamanager.service;
+
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+import com.volodymyrkozlov.tradingdatamanager.repository.EntityNotFoundException;
+import com.volodymyrkozlov.tradingdatamanager.repository.SymbolTradingDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams stats of K values of a symbol once batches of the symbol are applied. Subscribers of the same symbol
+ * and K values share a topic, stats of a topic are calculated once per applied batch and handed to all its subscribers.
+ * Both calculation and delivery are conflated: a topic signalled while its stats are calculated is calculated once more
+ * after it, and a subscriber still receiving stats gets only the latest stats once it's done, so a slow subscriber
+ * neither holds back other subscribers nor falls behind.
+ */
+@Service
+public class FinancialDataStreamService implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FinancialDataStreamService.class);
+
+    private final Map<String, Map<List<Integer>, StatsTopic>> symbolTopics = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("financial-data-stream-", 0)
+            .factory());
+    private final SymbolFinancialDataService financialDataService;
+
+    public FinancialDataStreamService(SymbolFinancialDataService financialDataService,
+                                      SymbolTradingDataRepository repository) {
+        this.financialDataService = financialDataService;
+        repository.addAppliedListener(this::publish);
+    }
+
+    /**
+     * Subscribes to stats of the K values of the symbol, the subscriber receives current stats first
+     * and then stats after applied batches. Stats are streamed again once a removed symbol is added back.
+     *
+     * @return callback which unsubscribes the subscriber
+     */
+    public Runnable subscribe(String symbol,
+                              List<Integer> ks,
+                              FinancialDataSubscriber subscriber) {
+        validateKValues(ks);
+        // validates K values and the symbol before the subscriber is registered
+        financialDataService.getFinancialData(symbol, ks);
+
+        final var topicKs = List.copyOf(ks);
+        final var statsSubscriber = new StatsSubscriber(symbol, topicKs, subscriber);
+        final var topic = symbolTopics.compute(symbol, (key, topics) -> {
+            final var heldTopics = topics == null ? new ConcurrentHashMap<List<Integer>, StatsTopic>() : topics;
+            heldTopics.computeIfAbsent(topicKs, topicKey -> new StatsTopic(key, topicKey))
+                    .subscribers.add(statsSubscriber);
+            return heldTopics;
+        }).get(topicKs);
+        // current stats are published to the whole topic, so they are never delivered after newer stats of the topic
+        topic.publisher.signal();
+
+        return () -> unsubscribe(symbol, topicKs, statsSubscriber);
+    }
+
+    /**
+     * Interrupts deliveries in progress, stats of batches applied after it aren't streamed.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void publish(String symbol) {
+        final var topics = symbolTopics.get(symbol);
+        if (topics != null) {
+            topics.values().forEach(topic -> topic.publisher.signal());
+        }
+    }
+
+    private void unsubscribe(String symbol,
+                             List<Integer> ks,
+                             StatsSubscriber statsSubscriber) {
+        symbolTopics.computeIfPresent(symbol, (key, topics) -> {
+            topics.computeIfPresent(ks, (topicKey, topic) -> {
+                topic.subscribers.remove(statsSubscriber);
+                return topic.subscribers.isEmpty() ? null : topic;
+            });
+            return topics.isEmpty() ? null : topics;
+        });
+    }
+
+    private static void validateKValues(List<Integer> ks) {
+        if (ks.isEmpty()) {
+            throw new IllegalArgumentException("K values are empty");
+        }
+    }
+
+    private final class StatsTopic {
+        private final String symbol;
+        private final List<Integer> ks;
+        private final List<StatsSubscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final ConflatingTask publisher = new ConflatingTask(executor, this::publish);
+
+        private StatsTopic(String symbol,
+                           List<Integer> ks) {
+            this.symbol = symbol;
+            this.ks = ks;
+        }
+
+        private void publish() {
+            final Map<Integer, FinancialDataResponse> financialData;
+            try {
+                financialData = financialDataService.getFinancialData(symbol, ks);
+            } catch (EntityNotFoundException e) {
+                return;
+            }
+
+            subscribers.forEach(subscriber -> subscriber.offer(financialData));
+        }
+    }
+
+    private final class StatsSubscriber {
+        private final String symbol;
+        private final List<Integer> ks;
+        private final FinancialDataSubscriber subscriber;
+        private final AtomicReference<Map<Integer, FinancialDataResponse>> latestFinancialData = new AtomicReference<>();
+        private final ConflatingTask sender = new ConflatingTask(executor, this::send);
+
+        private StatsSubscriber(String symbol,
+                                List<Integer> ks,
+                                FinancialDataSubscriber subscriber) {
+            this.symbol = symbol;
+            this.ks = ks;
+            this.subscriber = subscriber;
+        }
+
+        private void offer(Map<Integer, FinancialDataResponse> financialData) {
+            latestFinancialData.set(financialData);
+            sender.signal();
+        }
+
+        private void send() {
+            final var financialData = latestFinancialData.getAndSet(null);
+            if (financialData == null) {
+                return;
+            }
+
+            try {
+                subscriber.receive(financialData);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("Subscriber of {} {} is dropped: {}", symbol, ks, e.getMessage());
+                unsubscribe(symbol, ks, this);
+            }
+        }
+    }
+}
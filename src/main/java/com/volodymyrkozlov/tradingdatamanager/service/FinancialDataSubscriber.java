@@ -0,0 +1,15 @@
+package com.volodymyrkozlov.tradingdatamanager.service;
+
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Receives stats of every subscribed K, a subscriber which fails to receive them is unsubscribed.
+ */
+@FunctionalInterface
+public interface FinancialDataSubscriber {
+
+    void receive(Map<Integer, FinancialDataResponse> financialData) throws IOException;
+}
@@ -1,11 +1,9 @@
 package com.volodymyrkozlov.tradingdatamanager.service;
 
 import com.volodymyrkozlov.tradingdatamanager.repository.DoubleRingBuffer;
-
-import java.util.Arrays;
-import java.util.Deque;
-import java.util.Map;
-import java.util.Optional;
+import com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque;
+import com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowMoments;
+import com.volodymyrkozlov.tradingdatamanager.repository.WindowStats;
 
 class SymbolFinancialDataAnalyzer {
 
@@ -19,108 +17,79 @@ class SymbolFinancialDataAnalyzer {
     }
 
     /**
-     * Time complexity is O(n)
+     * Time complexity is O(1)
      * Space complexity is O(n)
      */
-    static double averageTradingPrice(DoubleRingBuffer tradingPricesPrefixSums,
+    static double averageTradingPrice(MultiWindowMoments moments,
                                       int k) {
-        validateNotNull(tradingPricesPrefixSums);
-
-        final var end = tradingPricesPrefixSums.currentIndex();
-        final var size = tradingPricesPrefixSums.size();
-        final var elements = Math.min(k, size);
-        final var start = end - elements + 1;
-
-        final var total = tradingPricesPrefixSums.getByIndex(end);
-        final var excluded = (start > 0) ? tradingPricesPrefixSums.getByIndex(start - 1) : 0.0;
-
-        return (total - excluded) / elements;
+        validateMoments(moments, k);
+        return moments.mean(k - 1);
     }
 
     /**
-     * Time complexity is O(n)
+     * Returns population variance if the window of K covers all trading prices and sample variance otherwise.
+     * Time complexity is O(1)
      * Space complexity is O(n)
      */
-    static double varianceTradingPrice(DoubleRingBuffer tradingPrices,
-                                       DoubleRingBuffer tradingPricesPrefixSums,
-                                       DoubleRingBuffer tradingPricesPrefixSquares,
+    static double varianceTradingPrice(MultiWindowMoments moments,
                                        int k) {
-        validateNotNull(tradingPrices);
-        validateNotNull(tradingPricesPrefixSums);
-        validateNotNull(tradingPricesPrefixSquares);
-
-        validateSameSize(tradingPrices, tradingPricesPrefixSums, tradingPricesPrefixSquares);
+        validateMoments(moments, k);
 
-        final var end = tradingPrices.currentIndex();
-        final var size = tradingPrices.size();
-        final var elements = Math.min(k, size);
-        final var start = end - elements + 1;
+        final var elements = moments.count(k - 1);
+        final var size = moments.count(moments.windowsAmount() - 1);
 
         if (elements == 1) return 0.0;
 
-        var sum = tradingPricesPrefixSums.getByIndex(end);
-        var sumSq = tradingPricesPrefixSquares.getByIndex(end);
+        return (elements == size)
+                ? moments.squaredDeviations(k - 1) / elements
+                : moments.squaredDeviations(k - 1) / (elements - 1);
+    }
 
-        if (start > 0) {
-            sum -= tradingPricesPrefixSums.getByIndex(start - 1);
-            sumSq -= tradingPricesPrefixSquares.getByIndex(start - 1);
-        }
+    /**
+     * Returns population variance if the window covers all trading prices and sample variance otherwise.
+     * Time complexity is O(1)
+     * Space complexity is O(1)
+     */
+    static double varianceTradingPrice(WindowStats windowStats,
+                                       int size) {
+        final var elements = windowStats.count();
+
+        if (elements == 1) return 0.0;
 
         return (elements == size)
-                ? populationVariance(sumSq, sum, elements)
-                : sampleVariance(sumSq, sum, elements);
+                ? windowStats.squaredDeviations() / elements
+                : windowStats.squaredDeviations() / (elements - 1);
     }
 
     /**
-     * Time complexity is O(n)
+     * Time complexity is O(1)
      * Space complexity is O(n)
      */
-    static double minTradingPrice(DoubleRingBuffer prices,
-                                  Map<Integer, Deque<Integer>> minDequeues,
+    static double minTradingPrice(MultiWindowDeque minDeque,
                                   int k) {
-        return resolveDequeStats(prices, minDequeues, k);
+        return resolveDequeStats(minDeque, k);
     }
 
     /**
-     * Time complexity is O(n)
+     * Time complexity is O(1)
      * Space complexity is O(n)
      */
-    static double maxTradingPrice(DoubleRingBuffer prices,
-                                  Map<Integer, Deque<Integer>> maxDequeues,
+    static double maxTradingPrice(MultiWindowDeque maxDeque,
                                   int k) {
-        return resolveDequeStats(prices, maxDequeues, k);
+        return resolveDequeStats(maxDeque, k);
     }
 
-    private static double resolveDequeStats(DoubleRingBuffer prices,
-                                            Map<Integer, Deque<Integer>> dequeues,
+    private static double resolveDequeStats(MultiWindowDeque deque,
                                             int k) {
-        final var deque = Optional.ofNullable(dequeues.get(k))
-                .orElseThrow(() -> new IllegalArgumentException("Dequeues don't contain provided K %s".formatted(k)));
+        if (k < 1 || k > deque.windowsAmount()) {
+            throw new IllegalArgumentException("Dequeues don't contain provided K %s".formatted(k));
+        }
 
         if (deque.isEmpty()) {
             throw new IllegalArgumentException("Deque for K %s doesn't contain any data".formatted(k));
         }
 
-        final var index = deque.peekFirst();
-
-        try {
-            return prices.getByIndex(index);
-        } catch (IndexOutOfBoundsException e) {
-            throw new IllegalArgumentException("Trading prices don't contain index %s from deque".formatted(index));
-        }
-    }
-
-    private static double sampleVariance(Double sumSq,
-                                         Double sum,
-                                         int elementsAnalyze) {
-        return (sumSq - (sum * sum) / elementsAnalyze) / (elementsAnalyze - 1);
-    }
-
-    private static double populationVariance(Double sumSq,
-                                             Double sum,
-                                             int elementsAnalyze) {
-        final var mean = sum / elementsAnalyze;
-        return (sumSq / elementsAnalyze) - (mean * mean);
+        return deque.first(k - 1);
     }
 
     private static void validateNotNull(DoubleRingBuffer doubleRingBuffer) {
@@ -129,10 +98,18 @@ class SymbolFinancialDataAnalyzer {
         }
     }
 
-    private static void validateSameSize(DoubleRingBuffer... tradingPrices) {
-        if (Arrays.stream(tradingPrices).map(DoubleRingBuffer::size).distinct().count() != 1) {
-            throw new IllegalArgumentException("Trading prices collections must have the same size");
+    private static void validateMoments(MultiWindowMoments moments,
+                                        int k) {
+        if (moments == null) {
+            throw new IllegalArgumentException("Trading data cannot be null");
         }
-    }
 
+        if (k < 1 || k > moments.windowsAmount()) {
+            throw new IllegalArgumentException("Moments don't contain provided K %s".formatted(k));
+        }
+
+        if (moments.isEmpty()) {
+            throw new IllegalArgumentException("Moments for K %s don't contain any data".formatted(k));
+        }
+    }
 }
@@ -1,11 +1,22 @@
 package com.volodymyrkozlov.tradingdatamanager.service;
 
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataBatchesRequest;
 import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+import com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool;
 import com.volodymyrkozlov.tradingdatamanager.repository.SymbolTradingDataRepository;
+import com.volodymyrkozlov.tradingdatamanager.repository.TradingDataEntity;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse.financialDataResponseBuilder;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.averageTradingPrice;
@@ -13,47 +24,264 @@ import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialData
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.maxTradingPrice;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.minTradingPrice;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.varianceTradingPrice;
-import static com.volodymyrkozlov.tradingdatamanager.utils.MathUtils.powerOfTen;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 
 @Service
 public class SymbolFinancialDataService {
+    private static final VarHandle LITTLE_ENDIAN_DOUBLES = MethodHandles.byteArrayViewVarHandle(double[].class, LITTLE_ENDIAN);
+
     private final SymbolTradingDataRepository repository;
     private final Integer maxKValue;
+    private final TradingBufferPool tradingBufferPool;
 
     public SymbolFinancialDataService(SymbolTradingDataRepository repository,
-                                      @Value("${max-k-value}") Integer maxKValue) {
+                                      @Value("${max-k-value}") Integer maxKValue,
+                                      TradingBufferPool tradingBufferPool) {
         this.repository = repository;
         this.maxKValue = maxKValue;
+        this.tradingBufferPool = tradingBufferPool;
+    }
+
+    public void addFinancialData(String symbol,
+                                 double[] symbolTradingPrices,
+                                 int length) {
+        repository.addSymbolTradingData(symbol, symbolTradingPrices, length);
+    }
+
+    public void addFinancialData(String symbol,
+                                 double[] symbolTradingPrices,
+                                 long[] symbolTradingTimestamps,
+                                 int length) {
+        repository.addSymbolTradingData(symbol, symbolTradingPrices, symbolTradingTimestamps, length);
+    }
+
+    /**
+     * Queues the batch without waiting for it to be applied.
+     *
+     * @return sequence of the batch
+     */
+    public long queueFinancialData(String symbol,
+                                   double[] symbolTradingPrices,
+                                   long[] symbolTradingTimestamps,
+                                   int length) {
+        return repository.queueSymbolTradingData(symbol, symbolTradingPrices, symbolTradingTimestamps, length);
+    }
+
+    public void addFinancialData(FinancialDataBatchesRequest batches) {
+        repository.addSymbolsTradingData(batches.symbols(), batches.prices(), batches.offsets());
     }
 
+    /**
+     * Adds a batch of little-endian doubles, which are read through a pooled chunk of bytes into a pooled prices buffer
+     * without boxing. Buffers are returned to the pool once the batch is copied into the writer of the symbol.
+     */
     public void addFinancialData(String symbol,
-                                 List<Double> symbolTradingPrices) {
-        repository.addSymbolTradingData(symbol, symbolTradingPrices);
+                                 InputStream symbolTradingPrices) {
+        final var prices = tradingBufferPool.acquirePrices();
+        try {
+            addFinancialData(symbol, prices, readTradingPrices(symbolTradingPrices, prices));
+        } finally {
+            tradingBufferPool.release(prices);
+        }
+    }
+
+    public long queueFinancialData(String symbol,
+                                   InputStream symbolTradingPrices) {
+        final var prices = tradingBufferPool.acquirePrices();
+        try {
+            return repository.queueSymbolTradingData(symbol, prices, null, readTradingPrices(symbolTradingPrices, prices));
+        } finally {
+            tradingBufferPool.release(prices);
+        }
+    }
+
+    public void removeFinancialData(String symbol) {
+        repository.removeSymbolTradingData(symbol);
     }
 
     public FinancialDataResponse getFinancialData(String symbol,
                                                   int k) {
         validateMaxKValue(k);
-        final var analyzePoints = powerOfTen(k);
 
-        final var tradingPricingData = repository.getTradingData(symbol);
+        return repository.getTradingData(symbol)
+                .read(symbol, tradingPricingData -> financialData(tradingPricingData, k));
+    }
+
+    /**
+     * Returns stats of the window of last prices, which may be of any size up to the prices capacity of the symbol.
+     */
+    public FinancialDataResponse getWindowFinancialData(String symbol,
+                                                        int window) {
+        validateWindow(window);
+
+        return repository.getTradingData(symbol)
+                .read(symbol, tradingPricingData -> windowFinancialData(tradingPricingData, window));
+    }
+
+    /**
+     * Returns stats of prices of the period before the latest timestamp of the symbol, including the latest one.
+     * The start of the period is found by a binary search over timestamps, so it's O(log n) plus a window query.
+     */
+    public FinancialDataResponse getPeriodFinancialData(String symbol,
+                                                        Duration period) {
+        validatePeriod(period);
+
+        return repository.getTradingData(symbol)
+                .read(symbol, tradingPricingData -> periodFinancialData(tradingPricingData, period));
+    }
+
+    /**
+     * Returns stats of every K for every symbol, stats of a symbol are calculated against a single committed batch.
+     */
+    public Map<String, Map<Integer, FinancialDataResponse>> getFinancialData(List<String> symbols,
+                                                                            List<Integer> ks) {
+        ks.forEach(this::validateMaxKValue);
+
+        final var financialData = new LinkedHashMap<String, Map<Integer, FinancialDataResponse>>();
+        for (final var symbol : symbols) {
+            financialData.put(symbol, getFinancialData(symbol, ks));
+        }
+        return financialData;
+    }
+
+    /**
+     * Returns stats of every K for the symbol, calculated against a single committed batch.
+     */
+    public Map<Integer, FinancialDataResponse> getFinancialData(String symbol,
+                                                                List<Integer> ks) {
+        ks.forEach(this::validateMaxKValue);
+
+        return repository.getTradingData(symbol)
+                .read(symbol, tradingPricingData -> financialData(tradingPricingData, ks));
+    }
+
+    private static Map<Integer, FinancialDataResponse> financialData(TradingDataEntity tradingPricingData,
+                                                                     List<Integer> ks) {
+        final var financialData = new LinkedHashMap<Integer, FinancialDataResponse>();
+        for (final var k : ks) {
+            financialData.put(k, financialData(tradingPricingData, k));
+        }
+        return financialData;
+    }
+
+    private static FinancialDataResponse financialData(TradingDataEntity tradingPricingData,
+                                                       int k) {
+        validateMaxKValue(k, tradingPricingData.moments().windowsAmount());
+
+        final var writer = tradingPricingData.writer();
+        final var sequence = writer.appliedSequence();
+        final var tradingPrices = tradingPricingData.tradingPrices();
+        final var moments = tradingPricingData.moments();
+        final var maxDeque = tradingPricingData.maxDeque();
+        final var minDeque = tradingPricingData.minDeque();
+
+        return financialDataResponseBuilder()
+                .sequence(sequence)
+                .rejected(writer.rejectedBatches())
+                .lastRejectedSequence(writer.lastRejectedSequence())
+                .last(lastTradingPrice(tradingPrices))
+                .avg(averageTradingPrice(moments, k))
+                .max(maxTradingPrice(maxDeque, k))
+                .min(minTradingPrice(minDeque, k))
+                .var(varianceTradingPrice(moments, k))
+                .build();
+    }
 
+    private static FinancialDataResponse windowFinancialData(TradingDataEntity tradingPricingData,
+                                                             int window) {
+        final var writer = tradingPricingData.writer();
+        final var sequence = writer.appliedSequence();
         final var tradingPrices = tradingPricingData.tradingPrices();
-        final var tradingPricesPrefixSums = tradingPricingData.tradingPricesPrefixSums();
-        final var tradingPricesPrefixSquares = tradingPricingData.tradingPricesPrefixSquares();
-        final var maxDequeues = tradingPricingData.maxDequeues();
-        final var minDequeues = tradingPricingData.minDequeues();
+        validateMaxWindow(window, tradingPrices.capacity());
+        final var windowStats = tradingPricingData.blocks().stats(tradingPrices, window);
 
         return financialDataResponseBuilder()
+                .sequence(sequence)
+                .rejected(writer.rejectedBatches())
+                .lastRejectedSequence(writer.lastRejectedSequence())
                 .last(lastTradingPrice(tradingPrices))
-                .avg(averageTradingPrice(tradingPricesPrefixSums, analyzePoints))
-                .max(maxTradingPrice(tradingPrices, maxDequeues, analyzePoints))
-                .min(minTradingPrice(tradingPrices, minDequeues, analyzePoints))
-                .var(varianceTradingPrice(tradingPrices, tradingPricesPrefixSums, tradingPricesPrefixSquares, analyzePoints))
+                .avg(windowStats.mean())
+                .max(windowStats.max())
+                .min(windowStats.min())
+                .var(varianceTradingPrice(windowStats, tradingPrices.size()))
                 .build();
     }
 
+    private static FinancialDataResponse periodFinancialData(TradingDataEntity tradingPricingData,
+                                                             Duration period) {
+        final var timestamps = tradingPricingData.timestamps();
+        if (timestamps.isEmpty()) {
+            throw new IllegalArgumentException("Trading prices don't have timestamps");
+        }
+
+        return windowFinancialData(tradingPricingData, timestamps.countAfter(timestamps.last() - period.toMillis()));
+    }
+
+    /**
+     * Reads prices into the buffer of max batch size chunk by chunk.
+     *
+     * @return amount of read prices
+     */
+    private int readTradingPrices(InputStream symbolTradingPrices,
+                                  double[] prices) {
+        final var bytes = tradingBufferPool.acquireBytes();
+        try {
+            var length = 0;
+            while (true) {
+                final int read;
+                try {
+                    read = symbolTradingPrices.readNBytes(bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Trading prices cannot be read", e);
+                }
+
+                if (length + read / Double.BYTES > prices.length) {
+                    throw new IllegalArgumentException("Batch size is greater than allowed %s".formatted(prices.length));
+                }
+                if (read % Double.BYTES != 0) {
+                    throw new IllegalArgumentException("Batch length %s is not a multiple of %s bytes".formatted(length * Double.BYTES + read, Double.BYTES));
+                }
+
+                for (var i = 0; i < read; i += Double.BYTES) {
+                    prices[length++] = (double) LITTLE_ENDIAN_DOUBLES.get(bytes, i);
+                }
+                if (read < bytes.length) {
+                    return length;
+                }
+            }
+        } finally {
+            tradingBufferPool.release(bytes);
+        }
+    }
+
     private void validateMaxKValue(int k) {
+        validateMaxKValue(k, maxKValue);
+    }
+
+    private static void validateWindow(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window %s is not positive".formatted(window));
+        }
+    }
+
+    private static void validatePeriod(Duration period) {
+        if (period.toMillis() < 1) {
+            throw new IllegalArgumentException("Period %s is shorter than 1ms".formatted(period));
+        }
+    }
+
+    private static void validateMaxWindow(int window,
+                                          int maxWindow) {
+        if (window > maxWindow) {
+            throw new IllegalArgumentException("Window %s is greater than allowed %s".formatted(window, maxWindow));
+        }
+    }
+
+    /**
+     * Validates K against the max K value of the symbol, which may be lower than the global one.
+     */
+    private static void validateMaxKValue(int k,
+                                          int maxKValue) {
         if (k > maxKValue) {
             throw new IllegalArgumentException("K value %s is greater than allowed %s".formatted(k, maxKValue));
         }
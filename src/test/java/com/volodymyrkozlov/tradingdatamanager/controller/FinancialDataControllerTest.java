@@ -1,6 +1,7 @@
 package com.volodymyrkozlov.tradingdatamanager.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataBatchResponse;
 import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +11,17 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -69,8 +76,8 @@ public class FinancialDataControllerTest {
         assertThat(plnStats1e.last()).isEqualTo(61.4);
         assertThat(plnStats1e.min()).isEqualTo(0.27);
         assertThat(plnStats1e.max()).isEqualTo(77.51);
-        assertThat(plnStats1e.avg()).isEqualTo(39.833999999999925);
-        assertThat(plnStats1e.var()).isEqualTo(565.4533155555637);
+        assertThat(plnStats1e.avg()).isEqualTo(39.834);
+        assertThat(plnStats1e.var()).isEqualTo(565.4533155555557);
 
         var uahStats1e = objectMapper.readValue(mockMvc.perform(get("/stats/UAH/1"))
                 .andExpect(status().isOk())
@@ -81,8 +88,8 @@ public class FinancialDataControllerTest {
         assertThat(uahStats1e.last()).isEqualTo(41.08);
         assertThat(uahStats1e.min()).isEqualTo(7.39);
         assertThat(uahStats1e.max()).isEqualTo(85.94);
-        assertThat(uahStats1e.avg()).isEqualTo(45.910000000000124);
-        assertThat(uahStats1e.var()).isEqualTo(574.7012222222098);
+        assertThat(uahStats1e.avg()).isEqualTo(45.910000000000004);
+        assertThat(uahStats1e.var()).isEqualTo(574.7012222222222);
 
         var eurStats1e = objectMapper.readValue(mockMvc.perform(get("/stats/EUR/1"))
                 .andExpect(status().isOk())
@@ -92,8 +99,8 @@ public class FinancialDataControllerTest {
         assertThat(eurStats1e.last()).isEqualTo(93.41);
         assertThat(eurStats1e.min()).isEqualTo(3.57);
         assertThat(eurStats1e.max()).isEqualTo(97.26);
-        assertThat(eurStats1e.avg()).isEqualTo(56.898000000000046);
-        assertThat(eurStats1e.var()).isEqualTo(1091.5071733333343);
+        assertThat(eurStats1e.avg()).isEqualTo(56.897999999999996);
+        assertThat(eurStats1e.var()).isEqualTo(1091.5071733333332);
 
         // verifies stats for last 2e{k}
         var plnStats2e = objectMapper.readValue(mockMvc.perform(get("/stats/PLN/2"))
@@ -105,8 +112,8 @@ public class FinancialDataControllerTest {
         assertThat(plnStats2e.last()).isEqualTo(61.4);
         assertThat(plnStats2e.min()).isEqualTo(0.27);
         assertThat(plnStats2e.max()).isEqualTo(97.26);
-        assertThat(plnStats2e.avg()).isEqualTo(46.462000000000046);
-        assertThat(plnStats2e.var()).isEqualTo(824.229951515147);
+        assertThat(plnStats2e.avg()).isEqualTo(46.46200000000003);
+        assertThat(plnStats2e.var()).isEqualTo(824.2299515151514);
 
         var uahStats2e = objectMapper.readValue(mockMvc.perform(get("/stats/UAH/2"))
                 .andExpect(status().isOk())
@@ -117,8 +124,8 @@ public class FinancialDataControllerTest {
         assertThat(uahStats2e.last()).isEqualTo(41.08);
         assertThat(uahStats2e.min()).isEqualTo(0.27);
         assertThat(uahStats2e.max()).isEqualTo(97.26);
-        assertThat(uahStats2e.avg()).isEqualTo(46.46199999999999);
-        assertThat(uahStats2e.var()).isEqualTo(824.2299515151524);
+        assertThat(uahStats2e.avg()).isEqualTo(46.461999999999975);
+        assertThat(uahStats2e.var()).isEqualTo(824.2299515151515);
 
         var eurStats2e = objectMapper.readValue(mockMvc.perform(get("/stats/EUR/2"))
                 .andExpect(status().isOk())
@@ -128,8 +135,8 @@ public class FinancialDataControllerTest {
         assertThat(eurStats2e.last()).isEqualTo(93.41);
         assertThat(eurStats2e.min()).isEqualTo(0.49);
         assertThat(eurStats2e.max()).isEqualTo(98.23);
-        assertThat(eurStats2e.avg()).isEqualTo(51.36960000000003);
-        assertThat(eurStats2e.var()).isEqualTo(951.8094907474729);
+        assertThat(eurStats2e.avg()).isEqualTo(51.369600000000005);
+        assertThat(eurStats2e.var()).isEqualTo(951.8094907474751);
 
         // verifies stats for last 3e{k}
         var plnStats3e = objectMapper.readValue(mockMvc.perform(get("/stats/PLN/3"))
@@ -141,8 +148,8 @@ public class FinancialDataControllerTest {
         assertThat(plnStats3e.last()).isEqualTo(61.4);
         assertThat(plnStats3e.min()).isEqualTo(0.27);
         assertThat(plnStats3e.max()).isEqualTo(98.23);
-        assertThat(plnStats3e.avg()).isEqualTo(48.165312500000034);
-        assertThat(plnStats3e.var()).isEqualTo(875.9349774023399);
+        assertThat(plnStats3e.avg()).isEqualTo(48.16531249999999);
+        assertThat(plnStats3e.var()).isEqualTo(875.9349774023437);
 
         var uahStats3e = objectMapper.readValue(mockMvc.perform(get("/stats/UAH/3"))
                 .andExpect(status().isOk())
@@ -153,8 +160,8 @@ public class FinancialDataControllerTest {
         assertThat(uahStats3e.last()).isEqualTo(41.08);
         assertThat(uahStats3e.min()).isEqualTo(0.27);
         assertThat(uahStats3e.max()).isEqualTo(97.26);
-        assertThat(uahStats3e.avg()).isEqualTo(46.461999999999996);
-        assertThat(uahStats3e.var()).isEqualTo(815.9876520000007);
+        assertThat(uahStats3e.avg()).isEqualTo(46.461999999999975);
+        assertThat(uahStats3e.var()).isEqualTo(815.9876520000001);
 
         var eurStats3e = objectMapper.readValue(mockMvc.perform(get("/stats/EUR/3"))
                 .andExpect(status().isOk())
@@ -165,7 +172,7 @@ public class FinancialDataControllerTest {
         assertThat(eurStats3e.min()).isEqualTo(0.34);
         assertThat(eurStats3e.max()).isEqualTo(98.23);
         assertThat(eurStats3e.avg()).isEqualTo(49.51723529411766);
-        assertThat(eurStats3e.var()).isEqualTo(954.6676400034594);
+        assertThat(eurStats3e.var()).isEqualTo(954.66764000346);
 
         // verifies stats for last 5e{k}
         var plnStats8e = objectMapper.readValue(mockMvc.perform(get("/stats/PLN/8"))
@@ -177,8 +184,8 @@ public class FinancialDataControllerTest {
         assertThat(plnStats8e.last()).isEqualTo(61.4);
         assertThat(plnStats8e.min()).isEqualTo(0.27);
         assertThat(plnStats8e.max()).isEqualTo(98.23);
-        assertThat(plnStats8e.avg()).isEqualTo(48.165312500000034);
-        assertThat(plnStats8e.var()).isEqualTo(875.9349774023399);
+        assertThat(plnStats8e.avg()).isEqualTo(48.16531249999999);
+        assertThat(plnStats8e.var()).isEqualTo(875.9349774023437);
 
         var uahStats8e = objectMapper.readValue(mockMvc.perform(get("/stats/UAH/8"))
                 .andExpect(status().isOk())
@@ -189,8 +196,8 @@ public class FinancialDataControllerTest {
         assertThat(uahStats8e.last()).isEqualTo(41.08);
         assertThat(uahStats8e.min()).isEqualTo(0.27);
         assertThat(uahStats8e.max()).isEqualTo(97.26);
-        assertThat(uahStats8e.avg()).isEqualTo(46.461999999999996);
-        assertThat(uahStats8e.var()).isEqualTo(815.9876520000007);
+        assertThat(uahStats8e.avg()).isEqualTo(46.461999999999975);
+        assertThat(uahStats8e.var()).isEqualTo(815.9876520000001);
 
         var eurStats8e = objectMapper.readValue(mockMvc.perform(get("/stats/EUR/8"))
                 .andExpect(status().isOk())
@@ -201,7 +208,172 @@ public class FinancialDataControllerTest {
         assertThat(eurStats8e.min()).isEqualTo(0.34);
         assertThat(eurStats8e.max()).isEqualTo(98.23);
         assertThat(eurStats8e.avg()).isEqualTo(49.51723529411766);
-        assertThat(eurStats8e.var()).isEqualTo(954.6676400034594);
+        assertThat(eurStats8e.var()).isEqualTo(954.66764000346);
+    }
+
+    @Test
+    void processesBinaryTradingPrices() throws Exception {
+        // given
+        var prices = ByteBuffer.allocate(3 * Double.BYTES)
+                .order(LITTLE_ENDIAN)
+                .putDouble(2.0)
+                .putDouble(4.0)
+                .putDouble(3.0)
+                .array();
+
+        // when
+        mockMvc.perform(post("/add_batch")
+                        .param("symbol", "USD")
+                        .contentType(APPLICATION_OCTET_STREAM)
+                        .content(prices))
+                .andExpect(status().isOk());
+
+        // then
+        var usdStats1e = objectMapper.readValue(mockMvc.perform(get("/stats/USD/1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), FinancialDataResponse.class);
+
+        assertThat(usdStats1e.last()).isEqualTo(3.0);
+        assertThat(usdStats1e.min()).isEqualTo(2.0);
+        assertThat(usdStats1e.max()).isEqualTo(4.0);
+        assertThat(usdStats1e.avg()).isEqualTo(3.0);
+    }
+
+    @Test
+    void processesStatsOfWindow() throws Exception {
+        // given
+        mockMvc.perform(post("/add_batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"CHF\", \"values\": [1.0, 2.0, 4.0, 6.0]}"))
+                .andExpect(status().isOk());
+
+        // when
+        var chfStats = objectMapper.readValue(mockMvc.perform(get("/stats/CHF").param("window", "3"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), FinancialDataResponse.class);
+
+        // then
+        assertThat(chfStats.last()).isEqualTo(6.0);
+        assertThat(chfStats.min()).isEqualTo(2.0);
+        assertThat(chfStats.max()).isEqualTo(6.0);
+        assertThat(chfStats.avg()).isEqualTo(4.0);
+        assertThat(chfStats.var()).isEqualTo(4.0);
+        mockMvc.perform(get("/stats/CHF").param("window", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void processesStatsOfPeriod() throws Exception {
+        // given
+        mockMvc.perform(post("/add_batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"JPY\", \"values\": [1.0, 2.0, 4.0, 6.0], \"timestamps\": [0, 60000, 120000, 180000]}"))
+                .andExpect(status().isOk());
+
+        // when
+        var jpyStats = objectMapper.readValue(mockMvc.perform(get("/stats/JPY").param("period", "PT2M"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), FinancialDataResponse.class);
+
+        // then
+        assertThat(jpyStats.last()).isEqualTo(6.0);
+        assertThat(jpyStats.min()).isEqualTo(4.0);
+        assertThat(jpyStats.max()).isEqualTo(6.0);
+        assertThat(jpyStats.avg()).isEqualTo(5.0);
+        mockMvc.perform(post("/add_batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"JPY\", \"values\": [7.0], \"timestamps\": [0]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void processesQueuedTradingPrices() throws Exception {
+        // when
+        var batch = objectMapper.readValue(mockMvc.perform(post("/add_batch")
+                        .param("async", "true")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"SEK\", \"values\": [3.0, 1.0, 2.0]}"))
+                .andExpect(status().isAccepted())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), FinancialDataBatchResponse.class);
+
+        // then
+        assertThat(batch.sequence()).isEqualTo(1L);
+        FinancialDataResponse sekStats = null;
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (sekStats == null || sekStats.sequence() < batch.sequence()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Batch %s is not applied within 5 seconds".formatted(batch.sequence()));
+            }
+            Thread.sleep(1);
+            var response = mockMvc.perform(get("/stats/SEK/1"))
+                    .andReturn()
+                    .getResponse();
+            if (response.getStatus() == 200) {
+                sekStats = objectMapper.readValue(response.getContentAsString(), FinancialDataResponse.class);
+            }
+        }
+
+        assertThat(sekStats.last()).isEqualTo(2.0);
+        assertThat(sekStats.min()).isEqualTo(1.0);
+        assertThat(sekStats.max()).isEqualTo(3.0);
+        assertThat(sekStats.rejected()).isEqualTo(0L);
+    }
+
+    @Test
+    void streamsStats() throws Exception {
+        // given
+        mockMvc.perform(post("/add_batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"NOK\", \"values\": [1.0, 2.0]}"))
+                .andExpect(status().isOk());
+        var stream = mockMvc.perform(get("/stats/NOK/stream").param("k", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+
+        // when
+        mockMvc.perform(post("/add_batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"NOK\", \"values\": [3.0]}"))
+                .andExpect(status().isOk());
+
+        // then
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!stream.getContentAsString().contains("\"last\":3.0")) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Stats of the last batch are not streamed within 5 seconds");
+            }
+            Thread.sleep(1);
+        }
+        assertThat(stream.getContentAsString()).startsWith("event:stats");
+        assertThat(stream.getContentAsString()).contains("\"last\":2.0");
+    }
+
+    @Test
+    void removesSymbol() throws Exception {
+        // given
+        mockMvc.perform(post("/add_batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"symbol\": \"GBP\", \"values\": [1.0, 2.0]}"))
+                .andExpect(status().isOk());
+
+        // when
+        mockMvc.perform(delete("/symbols/GBP"))
+                .andExpect(status().isOk());
+
+        // then
+        mockMvc.perform(get("/stats/GBP/1"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/symbols/GBP"))
+                .andExpect(status().isNotFound());
     }
 
     private static String readBatchRequestData(String filename) throws IOException {
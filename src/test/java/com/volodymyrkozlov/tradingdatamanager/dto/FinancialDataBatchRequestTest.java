@@ -0,0 +1,78 @@
+package com.volodymyrkozlov.tradingdatamanager.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.joining;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FinancialDataBatchRequestTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parsesValuesIntoPrimitiveBuffer() throws JsonProcessingException {
+        // given
+        var values = IntStream.range(0, 2_000)
+                .mapToObj(String::valueOf)
+                .collect(joining(","));
+
+        // when
+        var request = objectMapper.readValue("{\"symbol\": \"PLN\", \"values\": [0.5, " + values + "]}", FinancialDataBatchRequest.class);
+
+        // then
+        assertThat(request.symbol()).isEqualTo("PLN");
+        assertThat(request.values().length()).isEqualTo(2_001);
+        assertThat(request.values().prices()[0]).isEqualTo(0.5);
+        assertThat(request.values().prices()[2_000]).isEqualTo(1_999.0);
+        assertThat(Arrays.copyOfRange(request.values().prices(), 1, 4)).containsExactly(0.0, 1.0, 2.0);
+    }
+
+    @Test
+    void parsesBatchesOfSeveralSymbolsIntoSingleBuffer() throws JsonProcessingException {
+        // when
+        var request = objectMapper.readValue("""
+                [{"symbol": "PLN", "values": [1.0, 2.0]}, {"values": [3], "symbol": "UAH"}, {"symbol": "PLN", "values": []}]
+                """, FinancialDataBatchesRequest.class);
+
+        // then
+        assertThat(request.symbols()).containsExactly("PLN", "UAH", "PLN");
+        assertThat(request.offsets()).containsExactly(0, 2, 3, 3);
+        assertThat(Arrays.copyOf(request.prices(), 3)).containsExactly(1.0, 2.0, 3.0);
+    }
+
+    @Test
+    void reusesPooledBufferOfProcessedRequest() throws JsonProcessingException {
+        // given
+        var bufferPool = new TradingBufferPool(4, 1);
+        var pooledObjectMapper = new ObjectMapper();
+        bufferPool.attach(pooledObjectMapper);
+        var firstRequest = pooledObjectMapper.readValue("{\"symbol\": \"PLN\", \"values\": [1.0, 2.0], \"timestamps\": [1, 2]}", FinancialDataBatchRequest.class);
+        bufferPool.release(firstRequest.values().prices());
+        bufferPool.release(firstRequest.timestamps().timestamps());
+
+        // when
+        var secondRequest = pooledObjectMapper.readValue("{\"symbol\": \"UAH\", \"values\": [3.0], \"timestamps\": [3]}", FinancialDataBatchRequest.class);
+
+        // then
+        assertThat(secondRequest.values().prices()).isSameAs(firstRequest.values().prices());
+        assertThat(secondRequest.timestamps().timestamps()).isSameAs(firstRequest.timestamps().timestamps());
+        assertThat(secondRequest.values().length()).isEqualTo(1);
+        assertThat(secondRequest.values().prices()[0]).isEqualTo(3.0);
+    }
+
+    @Test
+    void throwsExceptionIfValueIsNotNumber() {
+        // when
+        var exception = assertThrows(MismatchedInputException.class,
+                () -> objectMapper.readValue("{\"symbol\": \"PLN\", \"values\": [1.0, null]}", FinancialDataBatchRequest.class));
+
+        // then
+        assertThat(exception.getMessage()).contains("Cannot deserialize value of type `double`");
+    }
+}
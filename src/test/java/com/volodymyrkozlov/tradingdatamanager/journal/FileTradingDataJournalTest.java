@@ -0,0 +1,142 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+class FileTradingDataJournalTest {
+    @TempDir
+    Path journalDirectory;
+
+    @Test
+    void replaysSyncedBatchesAcrossSegments() throws IOException {
+        // given
+        try (var journal = journal()) {
+            journal.append("AAPL", new double[]{0.0, 1.0, 2.0, 3.0}, 1, 2);
+            journal.append("MSFT", new double[]{4.0}, 0, 1);
+            journal.append("AAPL", new double[]{5.0, 6.0}, 0, 2);
+            journal.sync();
+        }
+
+        // when
+        var records = replay(journal());
+
+        // then
+        assertThat(records).containsExactly("AAPL=[1.0, 2.0]", "MSFT=[4.0]", "AAPL=[5.0, 6.0]");
+        try (var segmentFiles = Files.list(journalDirectory)) {
+            assertThat(segmentFiles.count()).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    void truncatesTornRecordAndContinuesAppending() throws IOException {
+        // given
+        try (var journal = journal()) {
+            journal.append("AAPL", new double[]{1.0}, 0, 1);
+            journal.sync();
+        }
+        try (var segmentFiles = Files.list(journalDirectory)) {
+            Files.write(segmentFiles.findFirst().orElseThrow(), new byte[]{42, 0, 0, 0, 1}, APPEND);
+        }
+
+        // when
+        try (var journal = journal()) {
+            journal.append("AAPL", new double[]{2.0}, 0, 1);
+            journal.sync();
+        }
+
+        // then
+        assertThat(replay(journal())).containsExactly("AAPL=[1.0]", "AAPL=[2.0]");
+    }
+
+    @Test
+    void replaysRemovedSymbols() throws IOException {
+        // given
+        try (var journal = journal()) {
+            journal.append("AAPL", new double[]{1.0}, 0, 1);
+            journal.remove("AAPL");
+            journal.append("AAPL", new double[]{2.0}, 0, 1);
+            journal.sync();
+        }
+
+        // when
+        var records = replay(journal());
+
+        // then
+        assertThat(records).containsExactly("AAPL=[1.0]", "AAPL removed", "AAPL=[2.0]");
+    }
+
+    @Test
+    void replaysTimestampsOfPrices() throws IOException {
+        // given
+        try (var journal = journal()) {
+            journal.append("AAPL", new double[]{0.0, 1.0, 2.0}, new long[]{0L, 1_000L, 2_000L}, 1, 2);
+            journal.append("MSFT", new double[]{4.0}, 0, 1);
+            journal.sync();
+        }
+
+        // when
+        var records = replay(journal());
+
+        // then
+        assertThat(records).containsExactly("AAPL=[1.0, 2.0]@[1000, 2000]", "MSFT=[4.0]");
+    }
+
+    @Test
+    void syncsAsyncAppendsWithinDelay() throws IOException, InterruptedException {
+        try (var journal = journal()) {
+            // given
+            journal.append("AAPL", new double[]{1.0}, 0, 1);
+            journal.append("MSFT", new double[]{2.0}, 0, 1);
+
+            // when
+            journal.syncAsync();
+
+            // then
+            var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (journal.durableOffset() < journal.offset() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(journal.durableOffset()).isEqualTo(journal.offset());
+        }
+    }
+
+    private FileTradingDataJournal journal() {
+        return new FileTradingDataJournal(true, journalDirectory.toString(), DataSize.ofBytes(40), Duration.ofMillis(10));
+    }
+
+    private static List<String> replay(FileTradingDataJournal journal) throws IOException {
+        var records = new ArrayList<String>();
+        try (journal) {
+            journal.replay(new JournalRecordConsumer() {
+                @Override
+                public void accept(long offset,
+                                   String symbol,
+                                   double[] prices,
+                                   long[] timestamps,
+                                   int length) {
+                    records.add(symbol + "=" + Arrays.toString(Arrays.copyOf(prices, length))
+                            + (timestamps != null ? "@" + Arrays.toString(Arrays.copyOf(timestamps, length)) : ""));
+                }
+
+                @Override
+                public void remove(long offset,
+                                   String symbol) {
+                    records.add(symbol + " removed");
+                }
+            });
+        }
+        return records;
+    }
+}
@@ -0,0 +1,51 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+class SnapshotStagingChannelTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void transfersStagedBytesAcrossChunksAndReusesThem() throws IOException {
+        // given
+        var staging = new SnapshotStagingChannel();
+        var first = bytes(3 * (1 << 20) + 5, (byte) 1);
+        var second = bytes(7, (byte) 2);
+        var file = directory.resolve("staged");
+
+        // when
+        try (var channel = FileChannel.open(file, CREATE, WRITE)) {
+            staging.write(ByteBuffer.wrap(first));
+            staging.transferTo(channel);
+            staging.write(ByteBuffer.wrap(second));
+            staging.transferTo(channel);
+        }
+
+        // then
+        var written = Files.readAllBytes(file);
+        assertThat(written.length).isEqualTo(first.length + second.length);
+        assertThat(written[first.length - 1]).isEqualTo((byte) 1);
+        assertThat(written[first.length]).isEqualTo((byte) 2);
+        assertThat(written[written.length - 1]).isEqualTo((byte) 2);
+    }
+
+    private static byte[] bytes(int length,
+                                byte value) {
+        var bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
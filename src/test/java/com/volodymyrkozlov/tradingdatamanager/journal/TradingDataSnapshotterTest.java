@@ -0,0 +1,158 @@
+package com.volodymyrkozlov.tradingdatamanager.journal;
+
+import com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory;
+import com.volodymyrkozlov.tradingdatamanager.repository.EntityNotFoundException;
+import com.volodymyrkozlov.tradingdatamanager.repository.InMemorySymbolTradingDataRepository;
+import com.volodymyrkozlov.tradingdatamanager.repository.PriceEncoding;
+import com.volodymyrkozlov.tradingdatamanager.repository.StorageType;
+import com.volodymyrkozlov.tradingdatamanager.repository.TradingDataEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TradingDataSnapshotterTest {
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(StorageType.class)
+    void restoresSnapshotAndJournalRecordsAfterIt(StorageType storageType) throws IOException {
+        // given
+        var storageFactory = new DoubleStorageFactory(storageType, directory.resolve("storage").toString(), PriceEncoding.DOUBLE, 0);
+        var expectedRepository = new InMemorySymbolTradingDataRepository(3, 2, 200, storageFactory, disabledJournal(), disabledMetrics());
+        try (var journal = journal()) {
+            var repository = new InMemorySymbolTradingDataRepository(3, 2, 200, storageFactory, journal, disabledMetrics());
+            var snapshotter = snapshotter(repository, journal);
+
+            addPrices(List.of(repository, expectedRepository), "AAPL", 0, 150);
+            addPrices(List.of(repository, expectedRepository), "MSFT", 0, 30);
+            snapshotter.snapshot();
+            addPrices(List.of(repository, expectedRepository), "AAPL", 150, 20);
+            addPrices(List.of(repository, expectedRepository), "NVDA", 0, 10);
+        }
+
+        // when
+        try (var journal = journal()) {
+            var repository = new InMemorySymbolTradingDataRepository(3, 2, 200, storageFactory, journal, disabledMetrics());
+            new TradingDataJournalRecovery(journal, snapshotter(repository, journal), repository).recover();
+
+            // then
+            for (var symbol : List.of("AAPL", "MSFT", "NVDA")) {
+                assertThat(dump(repository.getTradingData(symbol))).isEqualTo(dump(expectedRepository.getTradingData(symbol)));
+            }
+        }
+        try (var snapshotFiles = Files.list(directory.resolve("snapshots"))) {
+            assertThat(snapshotFiles.count()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void restoresSymbolsRemovedAfterSnapshot() throws IOException {
+        // given
+        var expectedRepository = new InMemorySymbolTradingDataRepository(2, 2, 200, heapStorageFactory(), disabledJournal(), disabledMetrics());
+        try (var journal = journal()) {
+            var repository = new InMemorySymbolTradingDataRepository(2, 2, 200, heapStorageFactory(), journal, disabledMetrics());
+            var snapshotter = snapshotter(repository, journal);
+
+            addPrices(List.of(repository, expectedRepository), "AAPL", 0, 50);
+            snapshotter.snapshot();
+            addPrices(List.of(repository, expectedRepository), "MSFT", 0, 30);
+            repository.removeSymbolTradingData("MSFT");
+            expectedRepository.removeSymbolTradingData("MSFT");
+            addPrices(List.of(repository, expectedRepository), "NVDA", 0, 10);
+            snapshotter.snapshot();
+            repository.removeSymbolTradingData("AAPL");
+        }
+
+        // when
+        try (var journal = journal()) {
+            var repository = new InMemorySymbolTradingDataRepository(2, 2, 200, heapStorageFactory(), journal, disabledMetrics());
+            new TradingDataJournalRecovery(journal, snapshotter(repository, journal), repository).recover();
+
+            // then
+            assertThrows(EntityNotFoundException.class, () -> repository.getTradingData("AAPL"));
+            assertThrows(EntityNotFoundException.class, () -> repository.getTradingData("MSFT"));
+            assertThat(dump(repository.getTradingData("NVDA"))).isEqualTo(dump(expectedRepository.getTradingData("NVDA")));
+            repository.addSymbolTradingData("AAPL", List.of(1.0));
+        }
+    }
+
+    @Test
+    void restoresTimestampsOfSnapshotAndJournalRecordsAfterIt() throws IOException {
+        // given
+        try (var journal = journal()) {
+            var repository = new InMemorySymbolTradingDataRepository(2, 2, 200, heapStorageFactory(), journal, disabledMetrics());
+            var snapshotter = snapshotter(repository, journal);
+
+            repository.addSymbolTradingData("AAPL", new double[]{1.0, 2.0}, new long[]{1_000L, 2_000L}, 2);
+            snapshotter.snapshot();
+            repository.addSymbolTradingData("AAPL", new double[]{3.0}, new long[]{3_000L}, 1);
+        }
+
+        // when
+        try (var journal = journal()) {
+            var repository = new InMemorySymbolTradingDataRepository(2, 2, 200, heapStorageFactory(), journal, disabledMetrics());
+            new TradingDataJournalRecovery(journal, snapshotter(repository, journal), repository).recover();
+
+            // then
+            var timestamps = repository.getTradingData("AAPL").timestamps();
+            assertThat(timestamps.size()).isEqualTo(3);
+            assertThat(timestamps.getByIndex(0)).isEqualTo(1_000L);
+            assertThat(timestamps.getByIndex(2)).isEqualTo(3_000L);
+        }
+    }
+
+    private FileTradingDataJournal journal() {
+        return new FileTradingDataJournal(true, directory.resolve("journal").toString(), DataSize.ofKilobytes(1), Duration.ofMillis(10));
+    }
+
+    private TradingDataSnapshotter snapshotter(InMemorySymbolTradingDataRepository repository,
+                                               FileTradingDataJournal journal) {
+        return new TradingDataSnapshotter(true, directory.resolve("snapshots").toString(), Duration.ofHours(1), repository, journal);
+    }
+
+    private static void addPrices(List<InMemorySymbolTradingDataRepository> repositories,
+                                  String symbol,
+                                  int from,
+                                  int amount) {
+        var prices = IntStream.range(from, from + amount)
+                .mapToObj(i -> (double) (i * 7919 % 101))
+                .toList();
+        repositories.forEach(repository -> repository.addSymbolTradingData(symbol, prices));
+    }
+
+    private static String dump(TradingDataEntity entity) {
+        var prices = entity.tradingPrices();
+        var values = LongStream.rangeClosed(prices.currentIndex() - prices.size() + 1, prices.currentIndex())
+                .mapToObj(prices::getByIndex)
+                .toList();
+        var moments = IntStream.range(0, entity.moments().windowsAmount())
+                .mapToObj(window -> "%s/%s/%s".formatted(entity.moments().count(window),
+                        entity.moments().mean(window),
+                        entity.moments().squaredDeviations(window)))
+                .toList();
+        var deques = IntStream.range(0, entity.maxDeque().windowsAmount())
+                .mapToObj(window -> List.of(entity.maxDeque().toArray(window), entity.minDeque().toArray(window)))
+                .flatMap(List::stream)
+                .map(Arrays::toString)
+                .toList();
+        return values + " " + moments + " " + deques;
+    }
+}
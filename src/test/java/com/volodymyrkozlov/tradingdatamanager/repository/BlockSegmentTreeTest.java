@@ -0,0 +1,80 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockSegmentTreeTest {
+    private static final int CAPACITY = 5_000;
+    private static final int[] WINDOWS = {1, 250, 1_023, 1_025, 2_500, 4_999, 5_000, 7_000};
+
+    @Test
+    void returnsStatsOfAnyWindow() {
+        // given
+        var random = new Random(42);
+        var prices = random.doubles(20_000, 0.0, 100.0).toArray();
+        var tradingPrices = new DoubleRingBuffer(CAPACITY);
+        var blocks = new BlockSegmentTree(CAPACITY);
+
+        for (var i = 0; i < prices.length; i++) {
+            // when
+            tradingPrices.add(prices[i]);
+            blocks.add(prices[i]);
+
+            // then
+            if (i % 331 == 0) {
+                for (var window : WINDOWS) {
+                    assertWindowStats(blocks.stats(tradingPrices, window), Arrays.copyOfRange(prices, Math.max(0, i + 1 - Math.min(window, CAPACITY)), i + 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rebuildsBlocksOfTradingPrices() {
+        // given
+        var prices = new Random(7).doubles(12_345, 0.0, 100.0).toArray();
+        var tradingPrices = new DoubleRingBuffer(CAPACITY);
+        Arrays.stream(prices).forEach(tradingPrices::add);
+        var blocks = new BlockSegmentTree(CAPACITY);
+
+        // when
+        blocks.rebuild(tradingPrices);
+
+        // then
+        for (var window : WINDOWS) {
+            assertWindowStats(blocks.stats(tradingPrices, window), Arrays.copyOfRange(prices, prices.length - Math.min(window, CAPACITY), prices.length));
+        }
+    }
+
+    @Test
+    void throwsExceptionIfBlocksAreEmpty() {
+        // given
+        var blocks = new BlockSegmentTree(CAPACITY);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> blocks.stats(new DoubleRingBuffer(CAPACITY), 10));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Blocks for window 10 don't contain any data");
+    }
+
+    private static void assertWindowStats(WindowStats windowStats,
+                                          double[] windowPrices) {
+        var mean = Arrays.stream(windowPrices).average().orElseThrow();
+        var squaredDeviations = Arrays.stream(windowPrices)
+                .map(price -> (price - mean) * (price - mean))
+                .sum();
+
+        assertThat(windowStats.count()).isEqualTo(windowPrices.length);
+        assertThat(windowStats.min()).isEqualTo(Arrays.stream(windowPrices).min().orElseThrow());
+        assertThat(windowStats.max()).isEqualTo(Arrays.stream(windowPrices).max().orElseThrow());
+        assertThat(windowStats.mean()).isCloseTo(mean, within(1e-9));
+        assertThat(windowStats.squaredDeviations()).isCloseTo(squaredDeviations, within(1e-9 * Math.max(1.0, squaredDeviations)));
+    }
+}
@@ -0,0 +1,120 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DoubleRingBufferTest {
+    @TempDir
+    Path storageDirectory;
+
+    @ParameterizedTest
+    @EnumSource(StorageType.class)
+    void overwritesOldestValues(StorageType storageType) {
+        // given
+        var storageFactory = new DoubleStorageFactory(storageType, storageDirectory.toString(), PriceEncoding.DOUBLE, 0);
+        var buffer = new DoubleRingBuffer(storageFactory.allocate(3));
+
+        // when
+        for (var i = 0; i < 5; i++) {
+            buffer.add(i * 1.5);
+        }
+
+        // then
+        assertThat(buffer.size()).isEqualTo(3);
+        assertThat(buffer.currentIndex()).isEqualTo(4);
+        assertThat(buffer.getByIndex(2)).isEqualTo(3.0);
+        assertThat(buffer.getByIndex(4)).isEqualTo(6.0);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getByIndex(1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageType.class)
+    void growsStorageUpToMaxCapacity(StorageType storageType) {
+        // given
+        var storageFactory = new DoubleStorageFactory(storageType, storageDirectory.toString(), PriceEncoding.DOUBLE, 0);
+        var buffer = new DoubleRingBuffer(3_000, storageFactory::allocate);
+
+        // when
+        for (var i = 0; i < 3_500; i++) {
+            buffer.add(i);
+        }
+
+        // then
+        assertThat(buffer.allocatedCapacity()).isEqualTo(3_000);
+        assertThat(buffer.size()).isEqualTo(3_000);
+        assertThat(buffer.getByIndex(500)).isEqualTo(500.0);
+        assertThat(buffer.getByIndex(3_499)).isEqualTo(3_499.0);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getByIndex(499));
+    }
+
+    @Test
+    void startsWithInitialCapacityOnceCleared() {
+        // given
+        var buffer = new DoubleRingBuffer(3_000);
+        for (var i = 0; i < 2_000; i++) {
+            buffer.add(i);
+        }
+
+        // when
+        buffer.clear();
+        buffer.add(1.0);
+
+        // then
+        assertThat(buffer.allocatedCapacity()).isEqualTo(1_024);
+        assertThat(buffer.capacity()).isEqualTo(3_000);
+        assertThat(buffer.getByIndex(0)).isEqualTo(1.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageType.class)
+    void storesPricesOfEveryEncodingAsRounded(StorageType storageType) {
+        for (var priceEncoding : PriceEncoding.values()) {
+            // given
+            var storageFactory = new DoubleStorageFactory(storageType, storageDirectory.toString(), priceEncoding, 5);
+            var buffer = new DoubleRingBuffer(storageFactory.allocate(3));
+
+            // when
+            buffer.add(1.23456);
+            buffer.add(12345.67891);
+
+            // then
+            assertThat(buffer.getByIndex(0)).isEqualTo(buffer.round(1.23456));
+            assertThat(buffer.getByIndex(1)).isEqualTo(buffer.round(12345.67891));
+        }
+    }
+
+    @Test
+    void storesScaledPricesExactly() {
+        // given
+        var storageFactory = new DoubleStorageFactory(StorageType.HEAP, storageDirectory.toString(), PriceEncoding.SCALED_INT, 5);
+        var buffer = new DoubleRingBuffer(storageFactory.allocate(3));
+
+        // when
+        buffer.add(1.23456);
+        buffer.add(0.000014);
+
+        // then
+        assertThat(buffer.getByIndex(0)).isEqualTo(1.23456);
+        assertThat(buffer.getByIndex(1)).isEqualTo(0.00001);
+    }
+
+    @Test
+    void throwsExceptionIfScaledPriceIsOutOfRange() {
+        // given
+        var storageFactory = new DoubleStorageFactory(StorageType.HEAP, storageDirectory.toString(), PriceEncoding.SCALED_INT, 5);
+        var buffer = new DoubleRingBuffer(storageFactory.allocate(3));
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> buffer.round(100_000.0));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Price 100000.0 cannot be stored with 5 decimals");
+    }
+}
@@ -2,13 +2,20 @@ package com.volodymyrkozlov.tradingdatamanager.repository;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class InMemorySymbolTradingDataRepositoryTest {
-    private final InMemorySymbolTradingDataRepository repository = new InMemorySymbolTradingDataRepository(2, 2, 5);
+    private final InMemorySymbolTradingDataRepository repository = new InMemorySymbolTradingDataRepository(2, 2, 5, heapStorageFactory(), disabledJournal(), disabledMetrics());
 
     @Test
     void initiatesTradingData() {
@@ -24,18 +31,14 @@ class InMemorySymbolTradingDataRepositoryTest {
                     assertThat(tradingPrices.size()).isEqualTo(1);
                     assertThat(tradingPrices.getByIndex(0)).isEqualTo(1.0);
                 });
-        assertThat(tradingDataEntity.tradingPricesPrefixSums())
-                .satisfies(tradingPricesPrefixSums -> {
-                    assertThat(tradingPricesPrefixSums.size()).isEqualTo(1);
-                    assertThat(tradingPricesPrefixSums.getByIndex(0)).isEqualTo(1.0);
+        assertThat(tradingDataEntity.moments())
+                .satisfies(moments -> {
+                    assertThat(moments.count(0)).isEqualTo(1);
+                    assertThat(moments.mean(0)).isEqualTo(1.0);
+                    assertThat(moments.squaredDeviations(0)).isEqualTo(0.0);
                 });
-        assertThat(tradingDataEntity.tradingPricesPrefixSquares())
-                .satisfies(tradingPricesPrefixSquares -> {
-                    assertThat(tradingPricesPrefixSquares.size()).isEqualTo(1);
-                    assertThat(tradingPricesPrefixSquares.getByIndex(0)).isEqualTo(1.0);
-                });
-        assertThat(tradingDataEntity.maxDequeues()).hasEntrySatisfying(10, deque -> assertThat(deque).containsExactly(0));
-        assertThat(tradingDataEntity.maxDequeues()).hasEntrySatisfying(100, deque -> assertThat(deque).containsExactly(0));
+        assertThat(tradingDataEntity.maxDeque().toArray(0)).containsExactly(0);
+        assertThat(tradingDataEntity.maxDeque().toArray(1)).containsExactly(0);
     }
 
     @Test
@@ -60,28 +63,151 @@ class InMemorySymbolTradingDataRepositoryTest {
                     assertThat(tradingPrices.getByIndex(3)).isEqualTo(9.0);
                     assertThat(tradingPrices.getByIndex(4)).isEqualTo(8.0);
                 });
-        assertThat(tradingDataEntity.tradingPricesPrefixSums())
-                .satisfies(tradingPricesPrefixSums -> {
-                    assertThat(tradingPricesPrefixSums.size()).isEqualTo(5);
-                    assertThat(tradingPricesPrefixSums.getByIndex(0)).isEqualTo(5.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(1)).isEqualTo(12.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(2)).isEqualTo(32.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(3)).isEqualTo(41.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(4)).isEqualTo(49.0);
+        assertThat(tradingDataEntity.moments())
+                .satisfies(moments -> {
+                    assertThat(moments.count(0)).isEqualTo(5);
+                    assertThat(moments.mean(0)).isEqualTo(9.8);
+                    assertThat(moments.squaredDeviations(0)).isEqualTo(138.8);
+                    assertThat(moments.count(1)).isEqualTo(5);
+                    assertThat(moments.mean(1)).isEqualTo(9.8);
                 });
-        assertThat(tradingDataEntity.tradingPricesPrefixSquares())
-                .satisfies(tradingPricesPrefixSums -> {
-                    assertThat(tradingPricesPrefixSums.size()).isEqualTo(5);
-                    assertThat(tradingPricesPrefixSums.getByIndex(0)).isEqualTo(25.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(1)).isEqualTo(74.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(2)).isEqualTo(474.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(3)).isEqualTo(555.0);
-                    assertThat(tradingPricesPrefixSums.getByIndex(4)).isEqualTo(619.0);
+        assertThat(tradingDataEntity.maxDeque().toArray(0)).containsExactly(2, 3, 4);
+        assertThat(tradingDataEntity.maxDeque().toArray(1)).containsExactly(2, 3, 4);
+        assertThat(tradingDataEntity.minDeque().toArray(0)).containsExactly(0, 1, 4);
+        assertThat(tradingDataEntity.minDeque().toArray(1)).containsExactly(0, 1, 4);
+    }
+
+    @Test
+    void addsTradingDataOfSeveralSymbols() {
+        // when
+        repository.addSymbolsTradingData(List.of("PLN", "UAH", "PLN"), new double[]{5.0, 7.0, 1.0, 2.0, 3.0}, new int[]{0, 2, 3, 5});
+
+        // then
+        assertThat(repository.getTradingData("PLN").tradingPrices())
+                .satisfies(tradingPrices -> {
+                    assertThat(tradingPrices.size()).isEqualTo(4);
+                    assertThat(tradingPrices.getByIndex(0)).isEqualTo(5.0);
+                    assertThat(tradingPrices.getByIndex(1)).isEqualTo(7.0);
+                    assertThat(tradingPrices.getByIndex(2)).isEqualTo(2.0);
+                    assertThat(tradingPrices.getByIndex(3)).isEqualTo(3.0);
                 });
-        assertThat(tradingDataEntity.maxDequeues()).hasEntrySatisfying(10, deque -> assertThat(deque).containsExactly(2, 3, 4));
-        assertThat(tradingDataEntity.maxDequeues()).hasEntrySatisfying(100, deque -> assertThat(deque).containsExactly(2, 3, 4));
-        assertThat(tradingDataEntity.minDequeues()).hasEntrySatisfying(10, deque -> assertThat(deque).containsExactly(0, 1, 4));
-        assertThat(tradingDataEntity.minDequeues()).hasEntrySatisfying(100, deque -> assertThat(deque).containsExactly(0, 1, 4));
+        assertThat(repository.getTradingData("UAH").tradingPrices())
+                .satisfies(tradingPrices -> {
+                    assertThat(tradingPrices.size()).isEqualTo(1);
+                    assertThat(tradingPrices.getByIndex(0)).isEqualTo(1.0);
+                });
+    }
+
+    @Test
+    void addsTradingDataOfOtherSymbolsIfSymbolsLimitIsReached() {
+        // given
+        repository.addSymbolTradingData("PLN", List.of(5.0));
+        repository.addSymbolTradingData("UAH", List.of(7.0));
+
+        // when
+        var exception = assertThrows(IllegalStateException.class,
+                () -> repository.addSymbolsTradingData(List.of("PLN", "USD", "UAH"), new double[]{1.0, 2.0, 3.0}, new int[]{0, 1, 2, 3}));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Trading data symbol limit of 2 is reached");
+        assertThat(repository.getTradingData("PLN").tradingPrices().getByIndex(1)).isEqualTo(1.0);
+        assertThat(repository.getTradingData("UAH").tradingPrices().getByIndex(1)).isEqualTo(3.0);
+    }
+
+    @Test
+    void reusesTradingDataOfRemovedSymbol() {
+        // given
+        repository.addSymbolTradingData("PLN", List.of(5.0, 7.0));
+        repository.addSymbolTradingData("UAH", List.of(1.0));
+        var removedTradingData = repository.getTradingData("PLN");
+
+        // when
+        repository.removeSymbolTradingData("PLN");
+        repository.addSymbolTradingData("USD", List.of(3.0));
+
+        // then
+        assertThrows(EntityNotFoundException.class, () -> repository.getTradingData("PLN"));
+        assertThat(repository.getTradingData("USD")).isSameAs(removedTradingData);
+        assertThat(repository.getTradingData("USD").tradingPrices().size()).isEqualTo(1);
+        assertThat(repository.getTradingData("USD").moments().mean(0)).isEqualTo(3.0);
+        assertThat(repository.getTradingData("USD").maxDeque().toArray(0)).containsExactly(0);
+        assertThrows(EntityNotFoundException.class, () -> removedTradingData.read("PLN", entity -> entity));
+    }
+
+    @Test
+    void throwsExceptionIfRemovedSymbolIsNotFound() {
+        // when
+        var exception = assertThrows(EntityNotFoundException.class, () -> repository.removeSymbolTradingData("PLN"));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Trading price data is not found for PLN");
+    }
+
+    @Test
+    void removesIdleSymbols() throws InterruptedException {
+        // given
+        repository.addSymbolTradingData("PLN", List.of(5.0));
+        Thread.sleep(200);
+        repository.addSymbolTradingData("UAH", List.of(7.0));
+
+        // when
+        var removedSymbols = repository.removeIdleSymbolsTradingData(Duration.ofMillis(150));
+
+        // then
+        assertThat(removedSymbols).containsExactly("PLN");
+        assertThrows(EntityNotFoundException.class, () -> repository.getTradingData("PLN"));
+        assertThat(repository.getTradingData("UAH").tradingPrices().getByIndex(0)).isEqualTo(7.0);
+    }
+
+    @Test
+    void restoresRemovedSymbolsAboveSymbolsLimit() {
+        // given
+        repository.restoreSymbolTradingData("PLN", new double[]{5.0}, 1);
+        repository.restoreSymbolTradingData("UAH", new double[]{7.0}, 1);
+        repository.restoreSymbolTradingData("USD", new double[]{9.0}, 1);
+
+        // when
+        repository.restoreSymbolRemoval("USD");
+
+        // then
+        var exception = assertThrows(IllegalStateException.class, () -> repository.addSymbolTradingData("EUR", List.of(1.0)));
+        assertThat(exception.getMessage()).isEqualTo("Trading data symbol limit of 2 is reached");
+    }
+
+    @Test
+    void appliesMaxKValueOfSymbol() {
+        // given
+        var symbolKValues = new SymbolKValues(2, List.of("UAH:1"));
+        var symbolRepository = new InMemorySymbolTradingDataRepository(2, symbolKValues, 5, heapStorageFactory(), disabledJournal(), disabledMetrics());
+
+        // when
+        symbolRepository.addSymbolTradingData("UAH", List.of(1.0));
+        symbolRepository.addSymbolTradingData("PLN", List.of(1.0));
+
+        // then
+        assertThat(symbolRepository.getTradingData("UAH").tradingPrices().capacity()).isEqualTo(10);
+        assertThat(symbolRepository.getTradingData("UAH").moments().windowsAmount()).isEqualTo(1);
+        assertThat(symbolRepository.getTradingData("UAH").maxDeque().windowsAmount()).isEqualTo(1);
+        assertThat(symbolRepository.getTradingData("PLN").tradingPrices().capacity()).isEqualTo(100);
+        assertThat(symbolRepository.getTradingData("PLN").moments().windowsAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void reusesTradingDataOfOtherMaxKValueIfSymbolsLimitIsReached() {
+        // given
+        var symbolKValues = new SymbolKValues(2, List.of("UAH:1"));
+        var symbolRepository = new InMemorySymbolTradingDataRepository(2, symbolKValues, 5, heapStorageFactory(), disabledJournal(), disabledMetrics());
+        symbolRepository.addSymbolTradingData("UAH", List.of(1.0));
+        symbolRepository.addSymbolTradingData("PLN", List.of(1.0));
+        symbolRepository.removeSymbolTradingData("UAH");
+
+        // when
+        symbolRepository.addSymbolTradingData("USD", List.of(3.0));
+
+        // then
+        assertThat(symbolRepository.getTradingData("USD").moments().windowsAmount()).isEqualTo(2);
+        var exception = assertThrows(IllegalStateException.class, () -> symbolRepository.addSymbolTradingData("UAH", List.of(1.0)));
+        assertThat(exception.getMessage()).isEqualTo("Trading data symbol limit of 2 is reached");
     }
 
     @Test
@@ -97,6 +223,205 @@ class InMemorySymbolTradingDataRepositoryTest {
         assertThat(exception.getMessage()).isEqualTo("Trading data symbol limit of 2 is reached");
     }
 
+    @Test
+    void rejectsBatchIfPriceCannotBeStored() {
+        // given
+        var storageFactory = new DoubleStorageFactory(StorageType.HEAP, "", PriceEncoding.SCALED_INT, 5);
+        var scaledRepository = new InMemorySymbolTradingDataRepository(2, 2, 5, storageFactory, disabledJournal(), disabledMetrics());
+        scaledRepository.addSymbolTradingData("PLN", List.of(1.0));
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> scaledRepository.addSymbolTradingData("PLN", List.of(2.0, 100_000.0)));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Price 100000.0 cannot be stored with 5 decimals");
+        assertThat(scaledRepository.getTradingData("PLN").tradingPrices().size()).isEqualTo(1);
+        assertThat(scaledRepository.getTradingData("PLN").moments().count(0)).isEqualTo(1);
+    }
+
+    @Test
+    void queuesTradingData() throws InterruptedException {
+        // given
+        repository.addSymbolTradingData("PLN", List.of(1.0));
+
+        // when
+        var sequence = repository.queueSymbolTradingData("PLN", new double[]{2.0, 3.0}, null, 2);
+
+        // then
+        assertThat(sequence).isEqualTo(2L);
+        var writer = repository.getTradingData("PLN").writer();
+        awaitAppliedSequence(writer, sequence);
+        assertThat(repository.getTradingData("PLN").tradingPrices().currentIndex()).isEqualTo(2L);
+        assertThat(repository.getTradingData("PLN").maxDeque().first(0)).isEqualTo(3.0);
+    }
+
+    @Test
+    void rejectsBatchesQueuedAfterRejectedFirstBatchOfSymbol() throws InterruptedException {
+        // given
+        var appending = new CountDownLatch(1);
+        var appended = new CountDownLatch(1);
+        var journal = new TradingDataJournal() {
+            private boolean rejected;
+
+            @Override
+            public void append(String symbol,
+                               double[] prices,
+                               long[] timestamps,
+                               int offset,
+                               int length) {
+                if (!rejected) {
+                    rejected = true;
+                    appending.countDown();
+                    awaitLatch(appended);
+                    throw new IllegalStateException("Batch cannot be journaled");
+                }
+            }
+
+            @Override
+            public void remove(String symbol) {
+            }
+
+            @Override
+            public void sync() {
+            }
+
+            @Override
+            public void syncAsync() {
+            }
+        };
+        var journaledRepository = new InMemorySymbolTradingDataRepository(2, 2, 5, heapStorageFactory(), journal, disabledMetrics());
+        journaledRepository.queueSymbolTradingData("PLN", new double[]{1.0}, null, 1);
+        assertThat(appending.await(5, TimeUnit.SECONDS)).isTrue();
+        var writer = journaledRepository.getTradingData("PLN").writer();
+
+        // when
+        var sequence = journaledRepository.queueSymbolTradingData("PLN", new double[]{2.0}, null, 1);
+        appended.countDown();
+
+        // then
+        awaitAppliedSequence(writer, sequence);
+        assertThat(writer.rejectedBatches()).isEqualTo(2L);
+        assertThat(writer.lastRejectedSequence()).isEqualTo(2L);
+        assertThrows(EntityNotFoundException.class, () -> journaledRepository.getTradingData("PLN"));
+    }
+
+    @Test
+    void countsQueuedBatchesRejectedOnceApplied() throws InterruptedException {
+        // given
+        repository.addSymbolTradingData("PLN", new double[]{1.0}, new long[]{20L}, 1);
+
+        // when
+        var sequence = repository.queueSymbolTradingData("PLN", new double[]{2.0}, new long[]{10L}, 1);
+
+        // then
+        var writer = repository.getTradingData("PLN").writer();
+        awaitAppliedSequence(writer, sequence);
+        assertThat(writer.rejectedBatches()).isEqualTo(1L);
+        assertThat(writer.lastRejectedSequence()).isEqualTo(sequence);
+        assertThat(repository.getTradingData("PLN").tradingPrices().currentIndex()).isEqualTo(0L);
+    }
+
+    @Test
+    void rejectsQueuedBatchWithTimestampsGoingBackwards() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> repository.queueSymbolTradingData("PLN", new double[]{1.0, 2.0}, new long[]{20L, 10L}, 2));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Timestamp 10 is earlier than previous 20");
+        assertThrows(EntityNotFoundException.class, () -> repository.getTradingData("PLN"));
+    }
+
+    @Test
+    void restartsSequenceOfReaddedSymbol() {
+        // given
+        repository.restoreSymbolTradingData("PLN", new double[]{5.0, 7.0}, 2);
+        repository.addSymbolTradingData("PLN", List.of(1.0));
+        repository.addSymbolTradingData("UAH", List.of(3.0));
+        repository.addSymbolTradingData("UAH", List.of(4.0));
+        var restoredSequence = repository.getTradingData("PLN").writer().appliedSequence();
+
+        // when
+        repository.removeSymbolTradingData("PLN");
+        repository.addSymbolTradingData("PLN", List.of(2.0));
+        var sequence = repository.queueSymbolTradingData("PLN", new double[]{3.0}, null, 1);
+
+        // then
+        assertThat(restoredSequence).isEqualTo(1L);
+        assertThat(sequence).isEqualTo(2L);
+        assertThat(repository.getTradingData("UAH").writer().appliedSequence()).isEqualTo(2L);
+    }
+
+    @Test
+    void doesNotCreateSymbolIfFirstBatchIsRejected() {
+        // given
+        var storageFactory = new DoubleStorageFactory(StorageType.HEAP, "", PriceEncoding.SCALED_INT, 5);
+        var scaledRepository = new InMemorySymbolTradingDataRepository(1, 2, 5, storageFactory, disabledJournal(), disabledMetrics());
+
+        // when
+        assertThrows(IllegalArgumentException.class, () -> scaledRepository.addSymbolTradingData("PLN", List.of(100_000.0)));
+
+        // then
+        assertThrows(EntityNotFoundException.class, () -> scaledRepository.getTradingData("PLN"));
+        scaledRepository.addSymbolTradingData("UAH", List.of(1.0));
+        assertThat(scaledRepository.getTradingData("UAH").tradingPrices().size()).isEqualTo(1);
+    }
+
+    @Test
+    void addsBatchesOfConcurrentWritersOfSymbol() throws InterruptedException {
+        // given
+        var writers = IntStream.range(0, 4)
+                .mapToObj(writer -> Thread.ofVirtual().unstarted(() -> {
+                    for (var batch = 0; batch < 100; batch++) {
+                        repository.addSymbolTradingData("PLN", List.of(1.0, 3.0));
+                    }
+                }))
+                .toList();
+
+        // when
+        writers.forEach(Thread::start);
+        for (var writer : writers) {
+            writer.join();
+        }
+
+        // then
+        var tradingDataEntity = repository.getTradingData("PLN");
+        assertThat(tradingDataEntity.tradingPrices().currentIndex()).isEqualTo(799L);
+        assertThat(tradingDataEntity.moments().count(1)).isEqualTo(100);
+        assertThat(tradingDataEntity.maxDeque().toArray(1)).containsExactly(799L);
+        assertThat(tradingDataEntity.minDeque().toArray(1)).containsExactly(798L, 799L);
+    }
+
+    @Test
+    void rejectsTimestampsEarlierThanPreviousOnes() {
+        // given
+        repository.addSymbolTradingData("PLN", new double[]{1.0, 2.0}, new long[]{1_000L, 2_000L}, 2);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> repository.addSymbolTradingData("PLN", new double[]{3.0, 4.0}, new long[]{3_000L, 1_500L}, 2));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Timestamp 1500 is earlier than previous 3000");
+        assertThat(repository.getTradingData("PLN").tradingPrices().size()).isEqualTo(2);
+        assertThat(repository.getTradingData("PLN").timestamps().last()).isEqualTo(2_000L);
+    }
+
+    @Test
+    void rejectsPricesWithoutTimestampsOfSymbolWithTimestamps() {
+        // given
+        repository.addSymbolTradingData("PLN", new double[]{1.0}, new long[]{1_000L}, 1);
+        repository.addSymbolTradingData("UAH", List.of(1.0));
+
+        // when
+        var withoutTimestamps = assertThrows(IllegalArgumentException.class, () -> repository.addSymbolTradingData("PLN", List.of(2.0)));
+        var withTimestamps = assertThrows(IllegalArgumentException.class,
+                () -> repository.addSymbolTradingData("UAH", new double[]{2.0}, new long[]{2_000L}, 1));
+
+        // then
+        assertThat(withoutTimestamps.getMessage()).isEqualTo("Prices of PLN must be added with timestamps");
+        assertThat(withTimestamps.getMessage()).isEqualTo("Prices of UAH must be added without timestamps");
+    }
+
     @Test
     void throwsExceptionIfBatchSizeExceeded() {
         // when
@@ -105,4 +430,23 @@ class InMemorySymbolTradingDataRepositoryTest {
         // then
         assertThat(exception.getMessage()).isEqualTo("Batch size 6 is greater than allowed 5");
     }
+
+    private static void awaitAppliedSequence(TradingDataWriter writer,
+                                             long sequence) throws InterruptedException {
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (writer.appliedSequence() < sequence) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Sequence %s is not applied within 5 seconds".formatted(sequence));
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.maxDeque;
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.minDeque;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiWindowDequeTest {
+    private static final int[] WINDOWS = {1, 10, 100, 1_000, 10_000};
+
+    @Test
+    void tracksMaxAndMinOfAllWindows() {
+        // given
+        var random = new Random(42);
+        var prices = IntStream.range(0, 50_000)
+                .mapToDouble(i -> i < 20_000 ? i : i < 30_000 ? -i : random.nextInt(1_000))
+                .toArray();
+        var maxDeque = maxDeque(WINDOWS);
+        var minDeque = minDeque(WINDOWS);
+
+        for (var i = 0; i < prices.length; i++) {
+            // when
+            maxDeque.add(i, prices[i]);
+            minDeque.add(i, prices[i]);
+
+            // then
+            if (i % 97 == 0) {
+                for (var window = 0; window < WINDOWS.length; window++) {
+                    var from = Math.max(0, i - WINDOWS[window] + 1);
+                    assertThat(maxDeque.first(window)).isEqualTo(windowStats(prices, from, i).getMax());
+                    assertThat(minDeque.first(window)).isEqualTo(windowStats(prices, from, i).getMin());
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepsLatestIndexOfEqualPrices() {
+        // given
+        var maxDeque = maxDeque(2, 4);
+
+        // when
+        maxDeque.add(0, 5.0);
+        maxDeque.add(1, 3.0);
+        maxDeque.add(2, 5.0);
+        maxDeque.add(3, 1.0);
+
+        // then
+        assertThat(maxDeque.toArray(0)).containsExactly(2, 3);
+        assertThat(maxDeque.toArray(1)).containsExactly(2, 3);
+        assertThat(maxDeque.firstIndex(1)).isEqualTo(2);
+    }
+
+    @Test
+    void keepsIndicesBeyondIntegerRange() {
+        // given
+        var maxDeque = maxDeque(2, 4);
+        var index = (1L << 32) - 2;
+
+        // when
+        maxDeque.add(index, 5.0);
+        maxDeque.add(index + 1, 3.0);
+        maxDeque.add(index + 2, 4.0);
+        maxDeque.add(index + 3, 1.0);
+        maxDeque.add(index + 4, 2.0);
+
+        // then
+        assertThat(maxDeque.toArray(0)).containsExactly(index + 4);
+        assertThat(maxDeque.toArray(1)).containsExactly(index + 2, index + 4);
+        assertThat(maxDeque.firstIndex(1)).isEqualTo(index + 2);
+        assertThat(maxDeque.first(1)).isEqualTo(4.0);
+    }
+
+    @Test
+    void throwsExceptionIfWindowsAreNotAscending() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> maxDeque(10, 10));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Windows must be sorted in ascending order");
+    }
+
+    private static DoubleSummaryStatistics windowStats(double[] prices,
+                                                       int from,
+                                                       int to) {
+        return IntStream.rangeClosed(from, to)
+                .mapToDouble(index -> prices[index])
+                .summaryStatistics();
+    }
+}
@@ -0,0 +1,55 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiWindowMomentsTest {
+    private static final int[] WINDOWS = {1, 10, 100, 1_000};
+
+    @Test
+    void tracksMeanAndSquaredDeviationsOfAllWindows() {
+        // given
+        var random = new Random(42);
+        var prices = IntStream.range(0, 20_000)
+                .mapToDouble(i -> i < 5_000 ? 1e6 + random.nextGaussian() * 1e3 : 1e6 + random.nextGaussian() * 1e-3)
+                .toArray();
+        var tradingPrices = new DoubleRingBuffer(1_000);
+        var moments = new MultiWindowMoments(WINDOWS);
+
+        for (var i = 0; i < prices.length; i++) {
+            // when
+            moments.add(tradingPrices, prices[i]);
+            tradingPrices.add(prices[i]);
+
+            // then
+            if (i % 97 == 0) {
+                for (var window = 0; window < WINDOWS.length; window++) {
+                    var windowPrices = Arrays.copyOfRange(prices, Math.max(0, i - WINDOWS[window] + 1), i + 1);
+                    var mean = Arrays.stream(windowPrices).average().orElseThrow();
+                    var squaredDeviations = Arrays.stream(windowPrices)
+                            .map(price -> (price - mean) * (price - mean))
+                            .sum();
+                    assertThat(moments.count(window)).isEqualTo(windowPrices.length);
+                    assertThat(moments.mean(window)).isCloseTo(mean, within(1e-6));
+                    assertThat(moments.squaredDeviations(window)).isCloseTo(squaredDeviations, within(1e-6 * Math.max(1.0, squaredDeviations)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void throwsExceptionIfWindowsAreNotAscending() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> new MultiWindowMoments(10, 1));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Windows must be sorted in ascending order");
+    }
+}
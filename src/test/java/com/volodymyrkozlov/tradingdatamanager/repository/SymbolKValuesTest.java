@@ -0,0 +1,42 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SymbolKValuesTest {
+
+    @Test
+    void returnsMaxKValueOfSymbolThenOfLongestPatternThenGlobalOne() {
+        // given
+        var symbolKValues = new SymbolKValues(8, List.of("EURUSD:6", "EUR*:4", "EURP*:3", ""));
+
+        // when
+        // then
+        assertThat(symbolKValues.maxKValue("EURUSD")).isEqualTo(6);
+        assertThat(symbolKValues.maxKValue("EURGBP")).isEqualTo(4);
+        assertThat(symbolKValues.maxKValue("EURPLN")).isEqualTo(3);
+        assertThat(symbolKValues.maxKValue("UAH")).isEqualTo(8);
+    }
+
+    @Test
+    void throwsExceptionIfMaxKValueIsGreaterThanGlobalOne() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> new SymbolKValues(5, List.of("EUR:6")));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Max K value of EUR:6 is not between 1 and 5");
+    }
+
+    @Test
+    void throwsExceptionIfMaxKValueIsMalformed() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> new SymbolKValues(5, List.of("EUR")));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Symbol max K value EUR doesn't match SYMBOL:K");
+    }
+}
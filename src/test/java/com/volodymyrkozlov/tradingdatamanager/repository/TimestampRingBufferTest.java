@@ -0,0 +1,45 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimestampRingBufferTest {
+
+    @Test
+    void countsTimestampsAfterTimestamp() {
+        // given
+        var timestamps = new TimestampRingBuffer(3_000);
+
+        // when
+        for (var i = 0; i < 5_000; i++) {
+            timestamps.add(i / 2 * 10L);
+        }
+
+        // then
+        assertThat(timestamps.size()).isEqualTo(3_000);
+        assertThat(timestamps.last()).isEqualTo(24_990L);
+        assertThat(timestamps.countAfter(24_990L)).isEqualTo(0);
+        assertThat(timestamps.countAfter(24_980L)).isEqualTo(2);
+        assertThat(timestamps.countAfter(24_985L)).isEqualTo(2);
+        assertThat(timestamps.countAfter(20_000L)).isEqualTo(998);
+        assertThat(timestamps.countAfter(0L)).isEqualTo(3_000);
+        assertThrows(IndexOutOfBoundsException.class, () -> timestamps.getByIndex(1_999));
+    }
+
+    @Test
+    void allocatesNothingUntilFirstTimestamp() {
+        // given
+        var timestamps = new TimestampRingBuffer(3_000);
+        timestamps.add(1L);
+
+        // when
+        timestamps.clear();
+
+        // then
+        assertThat(timestamps.isEmpty()).isTrue();
+        assertThat(timestamps.size()).isEqualTo(0);
+        assertThat(timestamps.countAfter(0L)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,197 @@
+package com.volodymyrkozlov.tradingdatamanager.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TradingDataWriterTest {
+
+    @Test
+    void appliesBatchesOfConcurrentCallersOneAtATime() throws InterruptedException {
+        // given
+        var activeBatches = new AtomicInteger();
+        var maxActiveBatches = new AtomicInteger();
+        var appliedBatches = new ArrayList<Integer>();
+        var writer = new TradingDataWriter(4, 1, WaitStrategy.YIELD, Executors.newVirtualThreadPerTaskExecutor(), slot -> {
+            maxActiveBatches.accumulateAndGet(activeBatches.incrementAndGet(), Math::max);
+            appliedBatches.add((int) slot.prices()[0]);
+            activeBatches.decrementAndGet();
+            return true;
+        });
+        var callers = IntStream.range(0, 8)
+                .mapToObj(caller -> Thread.ofVirtual().unstarted(() -> {
+                    for (var batch = 0; batch < 1_000; batch++) {
+                        writer.write(null, "PLN", new double[]{caller * 1_000 + batch}, null, 0, 1, false);
+                    }
+                }))
+                .toList();
+
+        // when
+        callers.forEach(Thread::start);
+        for (var caller : callers) {
+            caller.join();
+        }
+
+        // then
+        assertThat(maxActiveBatches.get()).isEqualTo(1);
+        assertThat(appliedBatches).hasSize(8_000);
+        assertThat(writer.appliedSequence()).isEqualTo(8_000L);
+        for (var caller = 0; caller < 8; caller++) {
+            final var from = caller * 1_000;
+            assertThat(appliedBatches.stream().filter(value -> value >= from && value < from + 1_000).toList())
+                    .isEqualTo(IntStream.range(from, from + 1_000).boxed().toList());
+        }
+    }
+
+    @Test
+    void wakesUpParkedCallersAndDrainer() throws InterruptedException {
+        // given
+        var appliedBatches = new AtomicInteger();
+        var writer = new TradingDataWriter(2, 1, WaitStrategy.PARK, Executors.newVirtualThreadPerTaskExecutor(), slot -> {
+            appliedBatches.incrementAndGet();
+            return true;
+        });
+        var callers = IntStream.range(0, 8)
+                .mapToObj(caller -> Thread.ofVirtual().unstarted(() -> {
+                    for (var batch = 0; batch < 1_000; batch++) {
+                        if (batch % 2 == 0 || writer.tryQueue(null, "PLN", new double[]{batch}, null, 1) == TradingDataWriter.NO_SEQUENCE) {
+                            writer.write(null, "PLN", new double[]{batch}, null, 0, 1, false);
+                        }
+                    }
+                }))
+                .toList();
+
+        // when
+        callers.forEach(Thread::start);
+        for (var caller : callers) {
+            caller.join();
+        }
+        while (writer.appliedSequence() < 8_000) {
+            Thread.sleep(1);
+        }
+
+        // then
+        assertThat(appliedBatches.get()).isEqualTo(8_000);
+    }
+
+    @Test
+    void throwsFailureOfBatch() {
+        // given
+        var writer = new TradingDataWriter(2, 1, WaitStrategy.PARK, Runnable::run, slot -> {
+            if (slot.prices()[0] < 0) {
+                throw new IllegalArgumentException("Price is rejected");
+            }
+            return true;
+        });
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> writer.write(null, "PLN", new double[]{-1.0}, null, 0, 1, false));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Price is rejected");
+        assertThat(writer.write(null, "PLN", new double[]{1.0}, null, 0, 1, false)).isTrue();
+        assertThat(writer.appliedSequence()).isEqualTo(2L);
+    }
+
+    @Test
+    void appliesNextBatchesOnceApplierFailsWithError() {
+        // given
+        var writer = new TradingDataWriter(2, 1, WaitStrategy.PARK, Runnable::run, slot -> {
+            if (slot.prices()[0] < 0) {
+                throw new OutOfMemoryError("Buffer cannot be grown");
+            }
+            return true;
+        });
+
+        // when
+        var error = assertThrows(OutOfMemoryError.class, () -> writer.write(null, "PLN", new double[]{-1.0}, null, 0, 1, false));
+
+        // then
+        assertThat(error.getMessage()).isEqualTo("Buffer cannot be grown");
+        assertThat(writer.write(null, "PLN", new double[]{1.0}, null, 0, 1, false)).isTrue();
+        assertThat(writer.appliedSequence()).isEqualTo(2L);
+    }
+
+    @Test
+    void rejectsBatchesIfDrainerCannotBeStarted() {
+        // given
+        var writer = new TradingDataWriter(2, 1, WaitStrategy.PARK, command -> {
+            throw new RejectedExecutionException("Writers are closed");
+        }, slot -> true);
+
+        // when
+        var exception = assertThrows(RejectedExecutionException.class, () -> writer.write(null, "PLN", new double[]{1.0}, null, 0, 1, false));
+        var sequence = writer.tryQueue(null, "PLN", new double[]{2.0}, null, 1);
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Writers are closed");
+        assertThat(sequence).isEqualTo(2L);
+        assertThat(writer.appliedSequence()).isEqualTo(2L);
+        assertThat(writer.rejectedBatches()).isEqualTo(1L);
+        assertThat(writer.lastRejectedSequence()).isEqualTo(2L);
+    }
+
+    @Test
+    void rejectsQueuedBatchIfAllSlotsAreTaken() {
+        // given
+        var drainers = new ArrayList<Runnable>();
+        var appliedBatches = new ArrayList<Double>();
+        var writer = new TradingDataWriter(2, 1, WaitStrategy.PARK, drainers::add, slot -> appliedBatches.add(slot.prices()[0]));
+        var prices = new double[1];
+
+        // when
+        prices[0] = 1.0;
+        var firstSequence = writer.tryQueue(null, "PLN", prices, null, 1);
+        prices[0] = 2.0;
+        var secondSequence = writer.tryQueue(null, "PLN", prices, null, 1);
+        var rejectedSequence = writer.tryQueue(null, "PLN", prices, null, 1);
+
+        // then
+        assertThat(firstSequence).isEqualTo(1L);
+        assertThat(secondSequence).isEqualTo(2L);
+        assertThat(rejectedSequence).isEqualTo(TradingDataWriter.NO_SEQUENCE);
+        assertThat(writer.appliedSequence()).isEqualTo(0L);
+        assertThat(drainers).hasSize(1);
+
+        drainers.getFirst().run();
+        assertThat(appliedBatches).isEqualTo(List.of(1.0, 2.0));
+        assertThat(writer.appliedSequence()).isEqualTo(2L);
+        assertThat(writer.tryQueue(null, "PLN", prices, null, 1)).isEqualTo(3L);
+    }
+
+    @Test
+    void dropsBatchesQueuedBeforeRestart() {
+        // given
+        var drainers = new ArrayList<Runnable>();
+        var appliedBatches = new ArrayList<Double>();
+        var writer = new TradingDataWriter(4, 1, WaitStrategy.PARK, drainers::add, slot -> appliedBatches.add(slot.prices()[0]));
+        writer.tryQueue(null, "PLN", new double[]{1.0}, null, 1);
+
+        // when
+        writer.restart();
+        var sequence = writer.tryQueue(null, "PLN", new double[]{2.0}, null, 1);
+        drainers.getFirst().run();
+
+        // then
+        assertThat(sequence).isEqualTo(1L);
+        assertThat(appliedBatches).isEqualTo(List.of(2.0));
+        assertThat(writer.appliedSequence()).isEqualTo(1L);
+    }
+
+    @Test
+    void throwsExceptionIfQueueSizeIsNotPowerOfTwo() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> new TradingDataWriter(10, 1, WaitStrategy.PARK, Runnable::run, slot -> true));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Writer queue size 10 is not a power of two");
+    }
+}
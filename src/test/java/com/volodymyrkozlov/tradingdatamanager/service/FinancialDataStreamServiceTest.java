@@ -0,0 +1,97 @@
+package com.volodymyrkozlov.tradingdatamanager.service;
+
+import com.volodymyrkozlov.tradingdatamanager.dto.FinancialDataResponse;
+import com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool;
+import com.volodymyrkozlov.tradingdatamanager.repository.EntityNotFoundException;
+import com.volodymyrkozlov.tradingdatamanager.repository.InMemorySymbolTradingDataRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FinancialDataStreamServiceTest {
+    private final InMemorySymbolTradingDataRepository repository =
+            new InMemorySymbolTradingDataRepository(2, 2, 10, heapStorageFactory(), disabledJournal(), disabledMetrics());
+    private final SymbolFinancialDataService financialDataService = new SymbolFinancialDataService(repository, 2, new TradingBufferPool(10, 1));
+    private final FinancialDataStreamService financialDataStreamService = new FinancialDataStreamService(financialDataService, repository);
+
+    @Test
+    void streamsFinancialDataOfAppliedBatches() throws InterruptedException {
+        // given
+        var receivedFinancialData = new LinkedBlockingQueue<Map<Integer, FinancialDataResponse>>();
+        financialDataService.addFinancialData("PLN", new double[]{1.0, 2.0}, 2);
+        financialDataStreamService.subscribe("PLN", List.of(1, 2), receivedFinancialData::add);
+        var currentFinancialData = receivedFinancialData.poll(10, TimeUnit.SECONDS);
+
+        // when
+        financialDataService.addFinancialData("PLN", new double[]{3.0}, 1);
+
+        // then
+        assertThat(currentFinancialData).containsOnlyKeys(1, 2);
+        assertThat(currentFinancialData.get(1).last()).isEqualTo(2.0);
+        var appliedFinancialData = receivedFinancialData.poll(10, TimeUnit.SECONDS);
+        assertThat(appliedFinancialData).isEqualTo(financialDataService.getFinancialData("PLN", List.of(1, 2)));
+        assertThat(appliedFinancialData.get(1).last()).isEqualTo(3.0);
+        assertThat(appliedFinancialData.get(1).max()).isEqualTo(3.0);
+    }
+
+    @Test
+    void sendsOnlyLatestFinancialDataToSlowSubscriber() throws InterruptedException {
+        // given
+        var release = new CountDownLatch(1);
+        var receivedFinancialData = new LinkedBlockingQueue<Map<Integer, FinancialDataResponse>>();
+        financialDataService.addFinancialData("PLN", new double[]{0.0}, 1);
+        financialDataStreamService.subscribe("PLN", List.of(1), financialData -> {
+            receivedFinancialData.add(financialData);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // when
+        for (var batch = 1; batch <= 100; batch++) {
+            financialDataService.addFinancialData("PLN", new double[]{batch}, 1);
+        }
+        release.countDown();
+
+        // then
+        var receivedBatches = 0;
+        Map<Integer, FinancialDataResponse> financialData;
+        do {
+            financialData = receivedFinancialData.poll(10, TimeUnit.SECONDS);
+            receivedBatches++;
+        } while (financialData.get(1).last() < 100.0);
+        assertThat(receivedBatches).isLessThan(100);
+    }
+
+    @Test
+    void throwsExceptionIfSymbolIsNotFound() {
+        // when
+        var exception = assertThrows(EntityNotFoundException.class, () -> financialDataStreamService.subscribe("PLN", List.of(1), financialData -> {
+        }));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Trading price data is not found for PLN");
+    }
+
+    @Test
+    void throwsExceptionIfKValuesAreEmpty() {
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> financialDataStreamService.subscribe("PLN", List.of(), financialData -> {
+        }));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("K values are empty");
+    }
+}
@@ -1,23 +1,25 @@
 package com.volodymyrkozlov.tradingdatamanager.service;
 
 import com.volodymyrkozlov.tradingdatamanager.repository.DoubleRingBuffer;
+import com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque;
+import com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowMoments;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
 
-import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.IntStream;
 
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.maxDeque;
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.minDeque;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.averageTradingPrice;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.lastTradingPrice;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.maxTradingPrice;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.minTradingPrice;
 import static com.volodymyrkozlov.tradingdatamanager.service.SymbolFinancialDataAnalyzer.varianceTradingPrice;
-import static java.util.stream.Collectors.toCollection;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.within;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SymbolFinancialDataAnalyzerTest {
@@ -39,15 +41,13 @@ class SymbolFinancialDataAnalyzerTest {
     @ParameterizedTest
     @CsvFileSource(resources = "/min_trading_price_sheet.csv", numLinesToSkip = 1)
     void returnsMinTradingPrice(String tradingPricesInput,
-                                String minDequeInput,
                                 int k,
                                 Double expected) {
         // given
-        var tradingPrices = parseToList(tradingPricesInput);
-        var minDeque = Map.of(k, parseToDeque(minDequeInput));
+        var minDeque = parseToDeque(tradingPricesInput, minDeque(windows(k)));
 
         // when
-        var minTradingPrice = minTradingPrice(tradingPrices, minDeque, k);
+        var minTradingPrice = minTradingPrice(minDeque, k);
 
         // then
         assertThat(minTradingPrice).isEqualTo(expected);
@@ -56,15 +56,13 @@ class SymbolFinancialDataAnalyzerTest {
     @ParameterizedTest
     @CsvFileSource(resources = "/max_trading_price_sheet.csv", numLinesToSkip = 1)
     void returnsMaxTradingPrice(String tradingPricesInput,
-                                String maxDequeInput,
                                 int k,
                                 Double expected) {
         // given
-        var tradingPrices = parseToList(tradingPricesInput);
-        var maxDeque = Map.of(k, parseToDeque(maxDequeInput));
+        var maxDeque = parseToDeque(tradingPricesInput, maxDeque(windows(k)));
 
         // when
-        var maxTradingPrice = maxTradingPrice(tradingPrices, maxDeque, k);
+        var maxTradingPrice = maxTradingPrice(maxDeque, k);
 
         // then
         assertThat(maxTradingPrice).isEqualTo(expected);
@@ -73,14 +71,13 @@ class SymbolFinancialDataAnalyzerTest {
     @ParameterizedTest
     @CsvFileSource(resources = "/avg_trading_price_sheet.csv", numLinesToSkip = 1)
     void returnsAvgTradingPrice(String tradingPricesInput,
-                                String tradingPricesPrefixSumsInput,
                                 int k,
                                 Double expected) {
         // given
-        var tradingPricesPrefixSums = parseToList(tradingPricesPrefixSumsInput);
+        var moments = parseToMoments(tradingPricesInput, k);
 
         // when
-        var averageTradingPrice = averageTradingPrice(tradingPricesPrefixSums, k);
+        var averageTradingPrice = averageTradingPrice(moments, k);
 
         // then
         assertThat(averageTradingPrice).isEqualTo(expected);
@@ -89,20 +86,43 @@ class SymbolFinancialDataAnalyzerTest {
     @ParameterizedTest
     @CsvFileSource(resources = "/var_trading_price_sheet.csv", numLinesToSkip = 1)
     void returnsVarTradingPrice(String tradingPricesInput,
-                                String tradingPricesPrefixSumsInput,
-                                String tradingPricesPrefixSquaresInput,
                                 int k,
                                 Double expected) {
         // given
-        var tradingPrices = parseToList(tradingPricesInput);
-        var tradingPricesPrefixSums = parseToList(tradingPricesPrefixSumsInput);
-        var tradingPricesPrefixSquares = parseToList(tradingPricesPrefixSquaresInput);
+        var moments = parseToMoments(tradingPricesInput, k);
 
         // when
-        var averageTradingPrice = varianceTradingPrice(tradingPrices, tradingPricesPrefixSums, tradingPricesPrefixSquares, k);
+        var varianceTradingPrice = varianceTradingPrice(moments, k);
 
         // then
-        assertThat(averageTradingPrice).isEqualTo(expected);
+        assertThat(varianceTradingPrice).isCloseTo(expected, within(1e-9));
+    }
+
+    @Test
+    void returnsVarTradingPriceOfLargePricesAfterManyWindows() {
+        // given
+        var prices = IntStream.range(0, 1_000_000)
+                .mapToDouble(i -> 1e9 + i % 10 + (i % 7) * 1e-3)
+                .toArray();
+        var tradingPrices = new DoubleRingBuffer(10);
+        var moments = new MultiWindowMoments(10);
+        for (var price : prices) {
+            moments.add(tradingPrices, price);
+            tradingPrices.add(price);
+        }
+
+        // when
+        var varianceTradingPrice = varianceTradingPrice(moments, 1);
+
+        // then
+        var lastPrices = Arrays.stream(prices, prices.length - 10, prices.length)
+                .map(price -> price - 1e9)
+                .toArray();
+        var mean = Arrays.stream(lastPrices).average().orElseThrow();
+        var expected = Arrays.stream(lastPrices)
+                .map(price -> (price - mean) * (price - mean))
+                .sum() / lastPrices.length;
+        assertThat(varianceTradingPrice).isCloseTo(expected, within(1e-6));
     }
 
     @Test
@@ -115,7 +135,7 @@ class SymbolFinancialDataAnalyzerTest {
     }
 
     @Test
-    void throwsExceptionIfAverageInputDataHasDifferentSize() {
+    void throwsExceptionIfAverageInputDataIsNull() {
         // when
         var exception = assertThrows(IllegalArgumentException.class, () -> averageTradingPrice(null, 1));
 
@@ -124,56 +144,45 @@ class SymbolFinancialDataAnalyzerTest {
     }
 
     @Test
-    void throwsExceptionIfVarianceInputDataHasDifferentSize() {
-        // given
-        var tradingPricesPrefixSquares = new DoubleRingBuffer(1);
-        tradingPricesPrefixSquares.add(1);
-
+    void throwsExceptionWhenMomentsDontContainProvidedKElement() {
         // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> varianceTradingPrice(new DoubleRingBuffer(1), new DoubleRingBuffer(1), tradingPricesPrefixSquares, 1));
+        var exception = assertThrows(IllegalArgumentException.class, () -> varianceTradingPrice(new MultiWindowMoments(10), 2));
 
         // then
-        assertThat(exception.getMessage()).isEqualTo("Trading prices collections must have the same size");
+        assertThat(exception.getMessage()).isEqualTo("Moments don't contain provided K 2");
     }
 
     @Test
-    void throwsExceptionIfVarianceInputDataHasEmptyInput() {
-        // given
-        var tradingPricesPrefixSquares = new DoubleRingBuffer(1);
-        tradingPricesPrefixSquares.add(1);
-
+    void throwsExceptionWhenMomentsAreEmpty() {
         // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> varianceTradingPrice(new DoubleRingBuffer(1), new DoubleRingBuffer(1), tradingPricesPrefixSquares, 1));
+        var exception = assertThrows(IllegalArgumentException.class, () -> varianceTradingPrice(new MultiWindowMoments(10), 1));
 
         // then
-        assertThat(exception.getMessage()).isEqualTo("Trading prices collections must have the same size");
+        assertThat(exception.getMessage()).isEqualTo("Moments for K 1 don't contain any data");
     }
 
     @Test
     void throwsExceptionWhenMaxDequeDontContainProvidedKElement() {
         // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> maxTradingPrice(new DoubleRingBuffer(1), Map.of(), 1));
+        var exception = assertThrows(IllegalArgumentException.class, () -> maxTradingPrice(maxDeque(10), 2));
 
         // then
-        assertThat(exception.getMessage()).isEqualTo("Dequeues don't contain provided K 1");
+        assertThat(exception.getMessage()).isEqualTo("Dequeues don't contain provided K 2");
     }
 
     @Test
     void throwsExceptionWhenMinDequeDontContainProvidedKElement() {
         // given
-        var exception = assertThrows(IllegalArgumentException.class, () -> minTradingPrice(new DoubleRingBuffer(1), Map.of(), 1));
+        var exception = assertThrows(IllegalArgumentException.class, () -> minTradingPrice(minDeque(10), 2));
 
         // then
-        assertThat(exception.getMessage()).isEqualTo("Dequeues don't contain provided K 1");
+        assertThat(exception.getMessage()).isEqualTo("Dequeues don't contain provided K 2");
     }
 
     @Test
     void throwsExceptionWhenMaxDequeIsEmpty() {
-        // given
-        var maxDeque = new ArrayDeque<Integer>();
-
         // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> maxTradingPrice(new DoubleRingBuffer(1), Map.of(1, maxDeque), 1));
+        var exception = assertThrows(IllegalArgumentException.class, () -> maxTradingPrice(maxDeque(10), 1));
 
         // then
         assertThat(exception.getMessage()).isEqualTo("Deque for K 1 doesn't contain any data");
@@ -181,48 +190,37 @@ class SymbolFinancialDataAnalyzerTest {
 
     @Test
     void throwsExceptionWhenMinDequeIsEmpty() {
-        // given
-        var minDeque = new ArrayDeque<Integer>();
-
         // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> minTradingPrice(new DoubleRingBuffer(1), Map.of(1, minDeque), 1));
+        var exception = assertThrows(IllegalArgumentException.class, () -> minTradingPrice(minDeque(10), 1));
 
         // then
         assertThat(exception.getMessage()).isEqualTo("Deque for K 1 doesn't contain any data");
     }
 
-    @Test
-    void throwsExceptionWhenTradingPricesDontContainIndexFromMaxDeque() {
-        // given
-        var maxDeque = new ArrayDeque<Integer>();
-        maxDeque.add(2);
-
-        // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> maxTradingPrice(new DoubleRingBuffer(1), Map.of(1, maxDeque), 1));
-
-        // then
-        assertThat(exception.getMessage()).isEqualTo("Trading prices don't contain index 2 from deque");
+    private static int[] windows(int k) {
+        return IntStream.rangeClosed(1, k).toArray();
     }
 
-    @Test
-    void throwsExceptionWhenTradingPricesDontContainIndexFromMinDeque() {
-        // given
-        var minDeque = new ArrayDeque<Integer>();
-        minDeque.add(2);
-
-        // when
-        var exception = assertThrows(IllegalArgumentException.class, () -> minTradingPrice(new DoubleRingBuffer(1), Map.of(1, minDeque), 1));
-
-        // then
-        assertThat(exception.getMessage()).isEqualTo("Trading prices don't contain index 2 from deque");
+    private static MultiWindowDeque parseToDeque(String input,
+                                                 MultiWindowDeque deque) {
+        var prices = parseToList(input);
+        for (var i = 0; i < prices.size(); i++) {
+            deque.add(i, prices.getByIndex(i));
+        }
+        return deque;
     }
 
-
-    private static Deque<Integer> parseToDeque(String input) {
-        return Arrays.stream(input.split(";"))
-                .map(String::trim)
-                .map(Integer::parseInt)
-                .collect(toCollection(ArrayDeque::new));
+    private static MultiWindowMoments parseToMoments(String input,
+                                                     int k) {
+        var prices = parseToList(input);
+        var windows = windows(Math.max(k, prices.size()));
+        var tradingPrices = new DoubleRingBuffer(windows.length);
+        var moments = new MultiWindowMoments(windows);
+        for (var i = 0; i < prices.size(); i++) {
+            moments.add(tradingPrices, prices.getByIndex(i));
+            tradingPrices.add(prices.getByIndex(i));
+        }
+        return moments;
     }
 
     private static DoubleRingBuffer parseToList(String input) {
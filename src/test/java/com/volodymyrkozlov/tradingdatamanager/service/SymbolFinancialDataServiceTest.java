@@ -1,16 +1,31 @@
 package com.volodymyrkozlov.tradingdatamanager.service;
 
+import com.volodymyrkozlov.tradingdatamanager.dto.TradingBufferPool;
+import com.volodymyrkozlov.tradingdatamanager.repository.BlockSegmentTree;
 import com.volodymyrkozlov.tradingdatamanager.repository.DoubleRingBuffer;
+import com.volodymyrkozlov.tradingdatamanager.repository.InMemorySymbolTradingDataRepository;
+import com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowMoments;
+import com.volodymyrkozlov.tradingdatamanager.repository.SymbolKValues;
 import com.volodymyrkozlov.tradingdatamanager.repository.SymbolTradingDataRepository;
+import com.volodymyrkozlov.tradingdatamanager.repository.TimestampRingBuffer;
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
+import static com.volodymyrkozlov.tradingdatamanager.repository.DoubleStorageFactory.heapStorageFactory;
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.maxDeque;
+import static com.volodymyrkozlov.tradingdatamanager.repository.MultiWindowDeque.minDeque;
 import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataEntity.tradingDataEntityBuilder;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataJournal.disabledJournal;
+import static com.volodymyrkozlov.tradingdatamanager.repository.TradingDataMetrics.disabledMetrics;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.within;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -19,44 +34,96 @@ import static org.mockito.Mockito.when;
 class SymbolFinancialDataServiceTest {
     private final SymbolTradingDataRepository symbolTradingDataRepository = mock(SymbolTradingDataRepository.class);
     private final SymbolFinancialDataService symbolFinancialDataService =
-            new SymbolFinancialDataService(symbolTradingDataRepository, 8);
+            new SymbolFinancialDataService(symbolTradingDataRepository, 8, new TradingBufferPool(3, 1));
 
     @Test
     void addsSymbolTradingData() {
         // when
-        symbolFinancialDataService.addFinancialData("PLN", List.of(1.0, 2.0, 3.0));
+        symbolFinancialDataService.addFinancialData("PLN", new double[]{1.0, 2.0, 3.0, 0.0}, 3);
 
         // then
-        verify(symbolTradingDataRepository).addSymbolTradingData("PLN", List.of(1.0, 2.0, 3.0));
+        verify(symbolTradingDataRepository).addSymbolTradingData("PLN", new double[]{1.0, 2.0, 3.0, 0.0}, 3);
     }
 
     @Test
-    void returnsFinancialData() {
+    void addsBinarySymbolTradingData() {
+        // given
+        var prices = ByteBuffer.allocate(3 * Double.BYTES)
+                .order(LITTLE_ENDIAN)
+                .putDouble(1.0)
+                .putDouble(2.0)
+                .putDouble(3.0)
+                .array();
+
+        // when
+        symbolFinancialDataService.addFinancialData("PLN", new ByteArrayInputStream(prices));
+
+        // then
+        verify(symbolTradingDataRepository).addSymbolTradingData("PLN", new double[]{1.0, 2.0, 3.0}, 3);
+    }
+
+    @Test
+    void addsBinaryTradingDataOfSeveralChunks() {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(1, 4, 2_000, heapStorageFactory(), disabledJournal(), disabledMetrics()), 4, new TradingBufferPool(2_000, 1));
+        var prices = ByteBuffer.allocate(2_000 * Double.BYTES).order(LITTLE_ENDIAN);
+        IntStream.rangeClosed(1, 2_000).forEach(prices::putDouble);
+
+        // when
+        financialDataService.addFinancialData("PLN", new ByteArrayInputStream(prices.array()));
+
+        // then
+        var financialData = financialDataService.getFinancialData("PLN", 4);
+        assertThat(financialData.last()).isEqualTo(2_000.0);
+        assertThat(financialData.min()).isEqualTo(1.0);
+        assertThat(financialData.avg()).isEqualTo(1_000.5);
+    }
+
+    @Test
+    void throwsExceptionIfBinaryBatchIsGreaterThanAllowed() {
         // given
-        var maxDeque = new ArrayDeque<Integer>();
-        maxDeque.add(0);
-        var minDeque = new ArrayDeque<Integer>();
-        minDeque.add(0);
+        var prices = new ByteArrayInputStream(new byte[4 * Double.BYTES]);
 
-        var maxDeques = new HashMap<Integer, Deque<Integer>>();
-        maxDeques.put(10, maxDeque);
-        var minDeques = new HashMap<Integer, Deque<Integer>>();
-        minDeques.put(10, minDeque);
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> symbolFinancialDataService.addFinancialData("PLN", prices));
 
-        var tradingPrices = new DoubleRingBuffer(1);
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Batch size is greater than allowed 3");
+    }
+
+    @Test
+    void removesSymbolTradingData() {
+        // when
+        symbolFinancialDataService.removeFinancialData("PLN");
+
+        // then
+        verify(symbolTradingDataRepository).removeSymbolTradingData("PLN");
+    }
+
+    @Test
+    void returnsFinancialData() {
+        // given
+        var maxDeque = maxDeque(10);
+        maxDeque.add(0, 1);
+        var minDeque = minDeque(10);
+        minDeque.add(0, 1);
+
+        var tradingPrices = new DoubleRingBuffer(10);
+        var moments = new MultiWindowMoments(10);
+        moments.add(tradingPrices, 1);
         tradingPrices.add(1);
-        var tradingPricesPrefixSums = new DoubleRingBuffer(1);
-        tradingPricesPrefixSums.add(1);
-        var tradingPricesPrefixSquares = new DoubleRingBuffer(1);
-        tradingPricesPrefixSquares.add(1);
+        var blocks = new BlockSegmentTree(10);
+        blocks.add(1);
 
         var tradingDataEntity = tradingDataEntityBuilder()
                 .tradingPrices(tradingPrices)
-                .tradingPricesPrefixSums(tradingPricesPrefixSums)
-                .tradingPricesPrefixSquares(tradingPricesPrefixSquares)
-                .maxDequeues(maxDeques)
-                .minDequeues(minDeques)
+                .moments(moments)
+                .maxDeque(maxDeque)
+                .minDeque(minDeque)
+                .blocks(blocks)
+                .timestamps(new TimestampRingBuffer(10))
                 .build();
+        tradingDataEntity.lease().acquire("PLN");
 
         when(symbolTradingDataRepository.getTradingData("PLN")).thenReturn(tradingDataEntity);
 
@@ -71,6 +138,111 @@ class SymbolFinancialDataServiceTest {
         assertThat(response.var()).isEqualTo(0.0);
     }
 
+    @Test
+    void returnsFinancialDataOfSeveralSymbolsAndKs() {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(2, 2, 200, heapStorageFactory(), disabledJournal(), disabledMetrics()), 2, new TradingBufferPool(200, 1));
+        financialDataService.addFinancialData("PLN", IntStream.rangeClosed(1, 150).asDoubleStream().toArray(), 150);
+        financialDataService.addFinancialData("UAH", new double[]{5.0, 3.0}, 2);
+
+        // when
+        var response = financialDataService.getFinancialData(List.of("PLN", "UAH"), List.of(1, 2));
+
+        // then
+        assertThat(response).containsOnlyKeys("PLN", "UAH");
+        assertThat(response.get("PLN")).containsEntry(1, financialDataService.getFinancialData("PLN", 1));
+        assertThat(response.get("PLN")).containsEntry(2, financialDataService.getFinancialData("PLN", 2));
+        assertThat(response.get("UAH")).containsEntry(1, financialDataService.getFinancialData("UAH", 1));
+        assertThat(response.get("UAH").get(2).max()).isEqualTo(5.0);
+    }
+
+    @Test
+    void returnsFinancialDataOfWindow() {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(1, 2, 10, heapStorageFactory(), disabledJournal(), disabledMetrics()), 2, new TradingBufferPool(10, 1));
+        financialDataService.addFinancialData("PLN", new double[]{1.0, 2.0, 4.0, 6.0}, 4);
+
+        // when
+        var response = financialDataService.getWindowFinancialData("PLN", 3);
+
+        // then
+        assertThat(response.last()).isEqualTo(6.0);
+        assertThat(response.min()).isEqualTo(2.0);
+        assertThat(response.max()).isEqualTo(6.0);
+        assertThat(response.avg()).isEqualTo(4.0);
+        assertThat(response.var()).isEqualTo(4.0);
+    }
+
+    @Test
+    void returnsFinancialDataOfPeriod() {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(1, 2, 10, heapStorageFactory(), disabledJournal(), disabledMetrics()), 2, new TradingBufferPool(10, 1));
+        financialDataService.addFinancialData("PLN", new double[]{1.0, 2.0, 4.0}, new long[]{0L, 60_000L, 120_000L}, 3);
+        financialDataService.addFinancialData("PLN", new double[]{6.0}, new long[]{180_000L}, 1);
+
+        // when
+        var response = financialDataService.getPeriodFinancialData("PLN", Duration.ofMinutes(2).plusMillis(1));
+
+        // then
+        assertThat(response.last()).isEqualTo(6.0);
+        assertThat(response.min()).isEqualTo(2.0);
+        assertThat(response.max()).isEqualTo(6.0);
+        assertThat(response.avg()).isEqualTo(4.0);
+        assertThat(response.var()).isEqualTo(4.0);
+    }
+
+    @Test
+    void throwsExceptionIfPricesDontHaveTimestamps() {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(1, 2, 10, heapStorageFactory(), disabledJournal(), disabledMetrics()), 2, new TradingBufferPool(10, 1));
+        financialDataService.addFinancialData("PLN", new double[]{1.0}, 1);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> financialDataService.getPeriodFinancialData("PLN", Duration.ofMinutes(5)));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Trading prices don't have timestamps");
+    }
+
+    @Test
+    void throwsExceptionIfWindowIsGreaterThanCapacity() {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(1, 2, 10, heapStorageFactory(), disabledJournal(), disabledMetrics()), 2, new TradingBufferPool(10, 1));
+        financialDataService.addFinancialData("PLN", new double[]{1.0}, 1);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> financialDataService.getWindowFinancialData("PLN", 101));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Window 101 is greater than allowed 100");
+    }
+
+    @Test
+    void returnsFinancialDataOfSingleBatchWhileBatchesAreAdded() throws InterruptedException {
+        // given
+        var financialDataService = new SymbolFinancialDataService(new InMemorySymbolTradingDataRepository(1, 2, 10, heapStorageFactory(), disabledJournal(), disabledMetrics()), 2, new TradingBufferPool(10, 1));
+        financialDataService.addFinancialData("PLN", new double[10], 10);
+        var writer = new Thread(() -> {
+            for (var batch = 1; batch <= 10_000; batch++) {
+                var prices = new double[10];
+                Arrays.fill(prices, batch);
+                financialDataService.addFinancialData("PLN", prices, prices.length);
+            }
+        });
+
+        // when
+        writer.start();
+        while (writer.isAlive()) {
+            var response = financialDataService.getFinancialData("PLN", 1);
+
+            // then
+            assertThat(response.min()).isEqualTo(response.last());
+            assertThat(response.max()).isEqualTo(response.last());
+            assertThat(response.avg()).isCloseTo(response.last(), within(1e-6));
+        }
+        writer.join();
+    }
+
     @Test
     void throwsExceptionIfMaxKValueExceeded() {
         // when
@@ -79,4 +251,18 @@ class SymbolFinancialDataServiceTest {
         // then
         assertThat(exception.getMessage()).isEqualTo("K value 9 is greater than allowed 8");
     }
+
+    @Test
+    void throwsExceptionIfMaxKValueOfSymbolExceeded() {
+        // given
+        var repository = new InMemorySymbolTradingDataRepository(2, new SymbolKValues(3, List.of("UAH:2")), 10, heapStorageFactory(), disabledJournal(), disabledMetrics());
+        var financialDataService = new SymbolFinancialDataService(repository, 3, new TradingBufferPool(10, 1));
+        financialDataService.addFinancialData("UAH", new double[]{5.0, 3.0}, 2);
+
+        // when
+        var exception = assertThrows(IllegalArgumentException.class, () -> financialDataService.getFinancialData("UAH", 3));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("K value 3 is greater than allowed 2");
+    }
 }